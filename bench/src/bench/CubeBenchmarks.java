@@ -0,0 +1,224 @@
+package bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import api.CsvParser;
+import api.MappedCsvParser;
+import api.ParallelCsvReader;
+import config.CubeBuilder;
+import core.Cube;
+import core.Dimension;
+import core.Grid;
+import data.model.Model;
+
+/**
+ * Benchmarks del cubo sobre modelos sintéticos de distintos tamaños (ver DataGenerator).
+ *
+ * Mide la carga (dimensiones, cubo completo con cada lector de hechos y desde un snapshot
+ * guardado con Cube.save(), que antes se verifica contra el cubo original), slice, dice sobre
+ * varias dimensiones, getCell() y los pivots de una y dos dimensiones en cada nivel de la
+ * jerarquía. La caché de consultas se desactiva para medir siempre el cálculo.
+ *
+ * Uso: java bench.CubeBenchmarks [--rows=10000,100000] [--out=bench-results.json]
+ *      [--warmup=3] [--iterations=5] [--time=200] [--seed=42] [--skew=1.0]
+ *      [--work=<carpeta temporal>]
+ */
+public class CubeBenchmarks {
+    private static final String[] DIMENSIONS = { "fechas", "productos", "puntos_venta" };
+    private static final String[] MEASURES = {      // Medidas que CubeBuilder agrega a cada cubo
+        "contar", "suma", "min", "max", "promedio", "distintos", "distintos_aprox", "mediana", "p95"
+    };
+    private static final long CSV_PARSER_MAX_ROWS = 1_000_000; // CsvParser materializa el archivo
+
+    private String dimensionsDir;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("rows", "10000,100000,1000000");
+        options.put("out", "bench-results.json");
+        options.put("warmup", "3");
+        options.put("iterations", "5");
+        options.put("time", "200");
+        options.put("seed", "42");
+        options.put("skew", "1.0");
+        options.put("work", System.getProperty("java.io.tmpdir"));
+        options.putAll(Options.parse(args, options.keySet().toArray(new String[0])));
+
+        Harness harness = new Harness(
+            Integer.parseInt(options.get("warmup")),
+            Integer.parseInt(options.get("iterations")),
+            Long.parseLong(options.get("time"))
+        );
+        long seed = Long.parseLong(options.get("seed"));
+        double skew = Double.parseDouble(options.get("skew"));
+        for (String value : options.get("rows").split(",")) {
+            long rows = Long.parseLong(value.trim());
+            Path dir = Paths.get(options.get("work"), "cubo-" + rows + "-" + seed + "-" + skew);
+            if (!Files.exists(dir.resolve("ventas.csv"))) {
+                DataGenerator generator = new DataGenerator();
+                generator.setFacts(rows);
+                generator.setSkew(skew, skew);
+                generator.setSeed(seed);
+                generator.write(dir);
+            }
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("rows", String.valueOf(rows));
+            params.put("skew", String.valueOf(skew));
+            CubeBenchmarks benchmarks = new CubeBenchmarks();
+            benchmarks.dimensionsDir = dir.toString();
+            benchmarks.runLoad(harness, params, dir.resolve("ventas.csv"), rows);
+            benchmarks.runQueries(harness, params, dir.resolve("ventas.csv"));
+        }
+        harness.writeJson(Paths.get(options.get("out")));
+    }
+
+    private CubeBuilder dimensions() throws Exception {
+        CsvParser parser = new CsvParser(";", false);
+        CubeBuilder builder = new CubeBuilder();
+        builder.addDimension("fechas", "id_fecha", Model.FECHA_DATA_TYPES, parser,
+                Paths.get(dimensionsDir, "fechas.csv").toString());
+        builder.addDimension("productos", "id_producto", Model.PRODUCTO_DATA_TYPES, parser,
+                Paths.get(dimensionsDir, "productos.csv").toString());
+        builder.addDimension("puntos_venta", "id_punto_venta", Model.PUNTO_VENTA_DATA_TYPES, parser,
+                Paths.get(dimensionsDir, "puntos_venta.csv").toString());
+        return builder;
+    }
+
+    /**
+     * Carga de las dimensiones sola, y del cubo completo (dimensiones, hechos e índice).
+     */
+    private void runLoad(Harness harness, Map<String, String> params, Path facts, long rows) throws Exception {
+        String path = facts.toString();
+        harness.run("load.dimensions", params, () -> dimensions());
+        if (rows <= CSV_PARSER_MAX_ROWS) {
+            harness.run("load.cube.csv", params, () -> {
+                CubeBuilder builder = dimensions();
+                builder.addFacts("ventas", new CsvParser(";", false), path);
+                return builder.buildCube();
+            });
+        }
+        harness.run("load.cube.mapped", params, () -> {
+            CubeBuilder builder = dimensions();
+            builder.addFacts("ventas", new MappedCsvParser(), path);
+            return builder.buildCube();
+        });
+        harness.run("load.cube.parallel", params, () -> {
+            CubeBuilder builder = dimensions();
+            builder.addFacts("ventas", new ParallelCsvReader(), path);
+            return builder.buildCube();
+        });
+
+        CubeBuilder builder = dimensions();
+        builder.addFacts("ventas", new ParallelCsvReader(), path);
+        Cube cube = builder.buildCube();
+        Path snapshot = facts.resolveSibling("cubo.snapshot");
+        cube.save(snapshot);
+        checkSnapshot(cube, Cube.load(snapshot));
+        harness.run("load.cube.snapshot", params, () -> Cube.load(snapshot));
+    }
+
+    /**
+     * Verifica que el cubo cargado de un snapshot tenga las mismas medidas que el original y
+     * que den los mismos resultados, bit a bit.
+     */
+    private static void checkSnapshot(Cube original, Cube loaded) {
+        original.selectFact("valor_total");
+        loaded.selectFact("valor_total");
+        for (String measure : MEASURES) {
+            original.selectMeasure(measure);
+            loaded.selectMeasure(measure);
+            Grid expected = original.groupBy("fechas");
+            Grid actual = loaded.groupBy("fechas");
+            boolean same = loaded.getSelectedMeasure().getName().equals(measure)
+                && expected.getMembers(0).equals(actual.getMembers(0));
+            for (int i = 0; same && i < expected.getMembers(0).size(); i++) {
+                same = Double.compare(expected.getValue(i), actual.getValue(i)) == 0;
+            }
+            if (!same) {
+                throw new IllegalStateException("The snapshot changed the results of " + measure);
+            }
+        }
+    }
+
+    /**
+     * Consultas sobre un cubo ya cargado: slice, dice, getCell() y pivots por nivel.
+     */
+    private void runQueries(Harness harness, Map<String, String> params, Path facts) throws Exception {
+        CubeBuilder builder = dimensions();
+        builder.addFacts("ventas", new ParallelCsvReader(), facts.toString());
+        Cube cube = builder.buildCube();
+        cube.getCache().setMaxBytes(0);
+        cube.selectFact("valor_total");
+        cube.selectMeasure("suma");
+
+        String year = member(cube, "fechas", 0);
+        String region = member(cube, "puntos_venta", 0);
+        String[] years = { year, member(cube, "fechas", 1) };
+        String[] categories = { member(cube, "productos", 0), member(cube, "productos", 1) };
+        harness.run("slice", params, () -> cube.slice("fechas", year));
+        harness.run("dice", params, () -> cube.dice(
+            "fechas", years,
+            "productos", categories,
+            "puntos_venta", new String[] { region }
+        ));
+        harness.run("getCell", params, () -> cube
+            .getCell("fechas", year, "puntos_venta", region)
+            .calc(cube.getSelectedFact(), cube.getSelectedMeasure()));
+
+        for (String dimension : DIMENSIONS) {
+            int levels = cube.getDimension(dimension).getLevels().size();
+            for (int depth = 0; depth < levels; depth++) {
+                Cube view = drilled(cube, depth, dimension);
+                String level = view.getDimension(dimension).getActiveLevel().getName();
+                harness.run("pivot1d." + dimension + "." + level, params, () -> view.groupBy(dimension));
+            }
+        }
+        for (int i = 0; i < DIMENSIONS.length; i++) {
+            for (int j = i + 1; j < DIMENSIONS.length; j++) {
+                String rowDim = DIMENSIONS[i];
+                String colDim = DIMENSIONS[j];
+                int levels = Math.min(
+                    cube.getDimension(rowDim).getLevels().size(),
+                    cube.getDimension(colDim).getLevels().size()
+                );
+                for (int depth = 0; depth < levels; depth++) {
+                    Cube view = drilled(cube, depth, rowDim, colDim);
+                    String name = "pivot2d." + rowDim + "." + view.getDimension(rowDim).getActiveLevel().getName()
+                            + "." + colDim + "." + view.getDimension(colDim).getActiveLevel().getName();
+                    harness.run(name, params, () -> view.groupBy(rowDim, colDim));
+                }
+            }
+        }
+    }
+
+    /**
+     * Vista del cubo con las dimensiones indicadas bajadas depth niveles,
+     * con el mismo hecho y medida que el cubo.
+     */
+    private static Cube drilled(Cube cube, int depth, String... dimensions) {
+        Cube view = cube.newView();
+        view.selectFact(cube.getSelectedFact());
+        view.selectMeasure(cube.getSelectedMeasure().getName());
+        for (String dimension : dimensions) {
+            for (int d = 0; d < depth; d++) {
+                view.drillDown(dimension);
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Devuelve el miembro en la posición indicada del nivel activo, para armar los filtros.
+     */
+    private static String member(Cube cube, String dimension, int position) {
+        Dimension dim = cube.getDimension(dimension);
+        List<Object> members = dim.getActiveLevel().getMembers();
+        return members.get(Math.min(position, members.size() - 1)).toString();
+    }
+}
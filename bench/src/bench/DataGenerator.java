@@ -0,0 +1,395 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Genera un modelo estrella sintético con los mismos esquemas que data.model.Model:
+ * fechas.csv, productos.csv, puntos_venta.csv y ventas.csv.
+ *
+ * La cantidad de filas de hechos, la cardinalidad de cada nivel, la popularidad de productos
+ * y puntos de venta (Zipf; 0 es uniforme) y la semilla son configurables; los valores por
+ * defecto reproducen la forma de los archivos del repo. Cada nivel depende sólo del nivel de
+ * abajo (por ejemplo, la ciudad determina la provincia), como en los datos reales.
+ *
+ * Los archivos se escriben con un FileChannel y un buffer directo, armando los bytes de cada
+ * fila sin Strings, así la generación de cientos de millones de filas va a la velocidad del disco.
+ *
+ * Uso: java bench.DataGenerator --out=carpeta [--facts=57851] [--seed=42] [--productSkew=1.0]
+ *      [--storeSkew=0.8] [--firstDate=2017-07-01] [--dates=1066] [--products=397] ...
+ * (una opción por cada nivel, con el nombre del campo).
+ */
+public class DataGenerator {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private long facts = 57_851;
+    private LocalDate firstDate = LocalDate.of(2017, 7, 1);
+    private int dates = 1_066;
+    private int products = 397;
+    private int subcategories = 37;
+    private int categories = 4;
+    private int stores = 701;
+    private int cities = 451;
+    private int provinces = 65;
+    private int countries = 6;
+    private int regions = 3;
+    private double productSkew = 1.0;   // Exponente de Zipf de la popularidad de los productos
+    private double storeSkew = 0.8;     // Exponente de Zipf de la popularidad de los puntos de venta
+    private long seed = 42;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = Options.parse(args, "out", "facts", "firstDate", "dates",
+                "products", "subcategories", "categories", "stores", "cities", "provinces",
+                "countries", "regions", "productSkew", "storeSkew", "seed");
+        if (!options.containsKey("out")) {
+            throw new IllegalArgumentException("Missing option: --out");
+        }
+        DataGenerator generator = new DataGenerator();
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            switch (option.getKey()) {
+                case "facts":
+                    generator.facts = Long.parseLong(value);
+                    break;
+                case "firstDate":
+                    generator.firstDate = LocalDate.parse(value);
+                    break;
+                case "dates":
+                    generator.dates = Integer.parseInt(value);
+                    break;
+                case "products":
+                    generator.products = Integer.parseInt(value);
+                    break;
+                case "subcategories":
+                    generator.subcategories = Integer.parseInt(value);
+                    break;
+                case "categories":
+                    generator.categories = Integer.parseInt(value);
+                    break;
+                case "stores":
+                    generator.stores = Integer.parseInt(value);
+                    break;
+                case "cities":
+                    generator.cities = Integer.parseInt(value);
+                    break;
+                case "provinces":
+                    generator.provinces = Integer.parseInt(value);
+                    break;
+                case "countries":
+                    generator.countries = Integer.parseInt(value);
+                    break;
+                case "regions":
+                    generator.regions = Integer.parseInt(value);
+                    break;
+                case "productSkew":
+                    generator.productSkew = Double.parseDouble(value);
+                    break;
+                case "storeSkew":
+                    generator.storeSkew = Double.parseDouble(value);
+                    break;
+                case "seed":
+                    generator.seed = Long.parseLong(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        long start = System.nanoTime();
+        generator.write(Paths.get(options.get("out")));
+        System.out.printf("%d facts written in %.1f s%n", generator.facts, (System.nanoTime() - start) / 1e9);
+    }
+
+    public void setFacts(long facts) {
+        if (facts < 0) {
+            throw new IllegalArgumentException("The number of facts must not be negative");
+        }
+        this.facts = facts;
+    }
+
+    /**
+     * Define los días de la dimensión fechas: dates días consecutivos desde firstDate.
+     */
+    public void setDates(LocalDate firstDate, int dates) {
+        checkCardinality("dates", dates, 1);
+        this.firstDate = firstDate;
+        this.dates = dates;
+    }
+
+    /**
+     * Define la cantidad de productos, subcategorías y categorías.
+     */
+    public void setProducts(int products, int subcategories, int categories) {
+        checkCardinality("categories", categories, 1);
+        checkCardinality("subcategories", subcategories, categories);
+        checkCardinality("products", products, subcategories);
+        this.products = products;
+        this.subcategories = subcategories;
+        this.categories = categories;
+    }
+
+    /**
+     * Define la cantidad de puntos de venta y de miembros de cada nivel geográfico.
+     */
+    public void setStores(int stores, int cities, int provinces, int countries, int regions) {
+        checkCardinality("regions", regions, 1);
+        checkCardinality("countries", countries, regions);
+        checkCardinality("provinces", provinces, countries);
+        checkCardinality("cities", cities, provinces);
+        checkCardinality("stores", stores, cities);
+        this.stores = stores;
+        this.cities = cities;
+        this.provinces = provinces;
+        this.countries = countries;
+        this.regions = regions;
+    }
+
+    /**
+     * Define los exponentes de Zipf de la popularidad de productos y puntos de venta.
+     * Con 0 las ventas se reparten en forma uniforme; con 1, el k-ésimo más vendido vende 1/k.
+     */
+    public void setSkew(double productSkew, double storeSkew) {
+        if (productSkew < 0 || storeSkew < 0) {
+            throw new IllegalArgumentException("Skew must not be negative");
+        }
+        this.productSkew = productSkew;
+        this.storeSkew = storeSkew;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Escribe los cuatro archivos en la carpeta indicada, reemplazando los que existan.
+     */
+    public void write(Path dir) throws IOException {
+        setFacts(facts);
+        setDates(firstDate, dates);
+        setProducts(products, subcategories, categories);
+        setStores(stores, cities, provinces, countries, regions);
+        setSkew(productSkew, storeSkew);
+        Files.createDirectories(dir);
+        SplittableRandom random = new SplittableRandom(seed);
+        writeDates(dir.resolve("fechas.csv"));
+        long[] prices = writeProducts(dir.resolve("productos.csv"), random.split());
+        writeStores(dir.resolve("puntos_venta.csv"));
+        writeFacts(dir.resolve("ventas.csv"), prices, random.split());
+    }
+
+    private void writeDates(Path path) throws IOException {
+        try (CsvWriter writer = new CsvWriter(path)) {
+            writer.header("id_fecha;fecha;dia;mes;quarter;anio");
+            for (int id = 0; id < dates; id++) {
+                LocalDate date = firstDate.plusDays(id);
+                writer.number(id).text(date.toString())
+                    .number(date.getDayOfMonth()).number(date.getMonthValue())
+                    .number((date.getMonthValue() + 2) / 3).number(date.getYear()).endRow();
+            }
+        }
+    }
+
+    /**
+     * @return Precio de cada producto, en centavos
+     */
+    private long[] writeProducts(Path path, SplittableRandom random) throws IOException {
+        long[] prices = new long[products];
+        try (CsvWriter writer = new CsvWriter(path)) {
+            writer.header("id_producto;producto;subcategoria;categoria");
+            for (int id = 0; id < products; id++) {
+                int subcategory = id % subcategories;
+                prices[id] = 100 + random.nextLong(300_000);
+                writer.number(id).text("Producto " + id)
+                    .text("Subcategoria " + subcategory)
+                    .text("Categoria " + subcategory % categories).endRow();
+            }
+        }
+        return prices;
+    }
+
+    private void writeStores(Path path) throws IOException {
+        try (CsvWriter writer = new CsvWriter(path)) {
+            writer.header("id_punto_venta;punto_venta;ciudad;provincia;pais;region");
+            for (int id = 0; id < stores; id++) {
+                int city = id % cities;
+                int province = city % provinces;
+                int country = province % countries;
+                writer.number(id).text("Punto de venta " + id)
+                    .text("Ciudad " + city).text("Provincia " + province)
+                    .text("Pais " + country).text("Region " + country % regions).endRow();
+            }
+        }
+    }
+
+    private void writeFacts(Path path, long[] prices, SplittableRandom random) throws IOException {
+        Zipf productPopularity = new Zipf(products, productSkew, random.split());
+        Zipf storePopularity = new Zipf(stores, storeSkew, random.split());
+        try (CsvWriter writer = new CsvWriter(path)) {
+            writer.header("id_producto;id_punto_venta;id_fecha;cantidad;valor_unitario;valor_total;costo");
+            for (long r = 0; r < facts; r++) {
+                int product = productPopularity.next(random);
+                int quantity = 1 + random.nextInt(4);
+                long total = prices[product] * quantity;
+                writer.number(product).number(storePopularity.next(random))
+                    .number(random.nextInt(dates)).number(quantity)
+                    .cents(prices[product]).cents(total)
+                    .cents(total * (80 + random.nextInt(41)) / 100).endRow();
+            }
+        }
+    }
+
+    private static void checkCardinality(String name, int value, int min) {
+        if (value < min) {
+            throw new IllegalArgumentException("The number of " + name + " must be at least " + min);
+        }
+    }
+
+    /**
+     * Distribución de Zipf sobre n miembros: la probabilidad del k-ésimo más popular es
+     * proporcional a 1 / k^skew. El orden de popularidad es una permutación al azar de los ids,
+     * para que no coincida con la jerarquía.
+     */
+    private static class Zipf {
+        private double[] cumulative;    // Probabilidad acumulada por ranking
+        private int[] ids;              // Id del miembro en cada posición del ranking
+
+        Zipf(int n, double skew, SplittableRandom random) {
+            this.cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1, skew);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cumulative[k] /= sum;
+            }
+            this.ids = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = ids[i];
+                ids[i] = ids[j];
+                ids[j] = swap;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return ids[low];
+        }
+    }
+
+    /**
+     * Escribe filas de un CSV separado por ';' en un buffer directo que se vuelca al canal
+     * cuando se llena. Los números se convierten a dígitos ASCII directamente en el buffer.
+     */
+    private static class CsvWriter implements AutoCloseable {
+        private FileChannel channel;
+        private ByteBuffer buffer;
+        private byte[] digits;
+        private boolean firstField;
+
+        CsvWriter(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.digits = new byte[20];
+            this.firstField = true;
+        }
+
+        void header(String header) throws IOException {
+            text(header).endRow();
+        }
+
+        CsvWriter text(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            separator(bytes.length);
+            buffer.put(bytes);
+            return this;
+        }
+
+        CsvWriter number(long value) throws IOException {
+            separator(digits.length + 1);
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            int start = digits.length;
+            do {
+                digits[--start] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            buffer.put(digits, start, digits.length - start);
+            return this;
+        }
+
+        /**
+         * Escribe un importe en centavos con dos decimales.
+         */
+        CsvWriter cents(long value) throws IOException {
+            number(value / 100);
+            long decimals = value % 100;
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + decimals / 10));
+            buffer.put((byte) ('0' + decimals % 10));
+            return this;
+        }
+
+        void endRow() throws IOException {
+            ensure(1);
+            buffer.put((byte) '\n');
+            firstField = true;
+        }
+
+        private void separator(int length) throws IOException {
+            ensure(length + 4);
+            if (!firstField) {
+                buffer.put((byte) ';');
+            }
+            firstField = false;
+        }
+
+        private void ensure(int length) throws IOException {
+            if (buffer.remaining() < length) {
+                flush();
+                if (buffer.capacity() < length) {
+                    buffer = ByteBuffer.allocateDirect(length);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ejecutor mínimo de benchmarks, con el mismo esquema de medición que JMH en modo "avgt".
+ *
+ * Cada benchmark corre primero las iteraciones de calentamiento y después las de medición. Una
+ * iteración repite la operación hasta cumplir el tiempo mínimo y registra el promedio en
+ * ns/op. Los resultados se escriben como JSON con el formato de JMH (benchmark, params,
+ * primaryMetric con score, scoreError y rawData), así se pueden comparar entre commits con las
+ * mismas herramientas.
+ */
+public class Harness {
+    private static volatile int sink;   // Evita que el JIT descarte los resultados
+
+    private int warmupIterations;       // Iteraciones descartadas
+    private int measurementIterations;  // Iteraciones registradas
+    private long iterationNanos;        // Tiempo mínimo de cada iteración
+    private List<Result> results;
+
+    /**
+     * Operación medida. Devuelve su resultado para que no se elimine como código muerto.
+     */
+    public interface Benchmark {
+        Object run() throws Exception;
+    }
+
+    public Harness(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.results = new ArrayList<>();
+    }
+
+    /**
+     * Mide una operación y guarda el resultado.
+     *
+     * @param name      Nombre del benchmark (por ejemplo "pivot1d.fechas.anio")
+     * @param params    Parámetros del benchmark, informados en el JSON
+     * @param benchmark Operación a medir
+     */
+    public void run(String name, Map<String, String> params, Benchmark benchmark) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(benchmark);
+        }
+        double[] samples = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            samples[i] = iteration(benchmark);
+        }
+        Result result = new Result(name, new LinkedHashMap<>(params), samples);
+        results.add(result);
+        System.out.println(result);
+    }
+
+    /**
+     * Escribe todos los resultados en formato JSON de JMH.
+     */
+    public void writeJson(Path path) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).appendJson(json);
+            json.append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        json.append("]\n");
+        Files.write(path, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Consume un resultado, igual que el Blackhole de JMH.
+     */
+    public static void consume(Object value) {
+        sink ^= System.identityHashCode(value);
+    }
+
+    private double iteration(Benchmark benchmark) throws Exception {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            consume(benchmark.run());
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        return (double) elapsed / operations;
+    }
+
+    /**
+     * Resultado de un benchmark: promedio de las iteraciones y error al 99.9%, como JMH.
+     */
+    private static class Result {
+        private String name;
+        private Map<String, String> params;
+        private double[] samples;   // ns/op de cada iteración medida
+        private double score;
+        private double error;
+
+        Result(String name, Map<String, String> params, double[] samples) {
+            this.name = name;
+            this.params = params;
+            this.samples = samples;
+            double sum = 0;
+            for (double sample : samples) {
+                sum += sample;
+            }
+            this.score = sum / samples.length;
+            double squares = 0;
+            for (double sample : samples) {
+                squares += (sample - score) * (sample - score);
+            }
+            // 3.29: cuantil normal para un intervalo de confianza del 99.9%
+            this.error = samples.length > 1
+                ? 3.29 * Math.sqrt(squares / (samples.length - 1)) / Math.sqrt(samples.length)
+                : Double.NaN;
+        }
+
+        void appendJson(StringBuilder json) {
+            json.append("  {\n");
+            json.append("    \"benchmark\" : \"").append(name).append("\",\n");
+            json.append("    \"mode\" : \"avgt\",\n");
+            json.append("    \"params\" : {");
+            int i = 0;
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                json.append(i++ == 0 ? " " : ", ");
+                json.append('"').append(param.getKey()).append("\" : \"").append(param.getValue()).append('"');
+            }
+            json.append(" },\n");
+            json.append("    \"primaryMetric\" : {\n");
+            json.append("      \"score\" : ").append(number(score)).append(",\n");
+            json.append("      \"scoreError\" : ").append(number(error)).append(",\n");
+            json.append("      \"scoreUnit\" : \"ns/op\",\n");
+            json.append("      \"rawData\" : [ [ ");
+            for (int s = 0; s < samples.length; s++) {
+                json.append(s == 0 ? "" : ", ").append(number(samples[s]));
+            }
+            json.append(" ] ]\n");
+            json.append("    }\n");
+            json.append("  }");
+        }
+
+        private static String number(double value) {
+            return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-40s %s %14.1f +- %.1f ns/op",
+                    name, params, score, Double.isNaN(error) ? 0 : error);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lee las opciones de línea de comandos de la forma --nombre=valor.
+ */
+final class Options {
+
+    private Options() {
+    }
+
+    /**
+     * @param args    Argumentos del main
+     * @param allowed Nombres de las opciones aceptadas
+     * @return Valor de cada opción presente, en el orden dado
+     */
+    static Map<String, String> parse(String[] args, String... allowed) {
+        List<String> names = Arrays.asList(allowed);
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0 || !names.contains(arg.substring(2, equals))) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
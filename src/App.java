@@ -2,6 +2,7 @@ import config.CubeBuilder;
 import core.Cube;
 import data.model.Model;
 import api.CsvParser;
+import api.ParallelCsvReader;
 import api.TablePrinter;
 
 public class App {
@@ -14,7 +15,7 @@ public class App {
         builder.addDimension("fechas", "id_fecha", Model.FECHA_DATA_TYPES, parser, "src/data/files/fechas.csv");
         builder.addDimension("productos", "id_producto", Model.PRODUCTO_DATA_TYPES, parser, "src/data/files/productos.csv");
         builder.addDimension("puntos_venta", "id_punto_venta", Model.PUNTO_VENTA_DATA_TYPES, parser, "src/data/files/puntos_venta.csv");
-        builder.addFacts("ventas", parser, "src/data/files/ventas.csv");
+        builder.addFacts("ventas", new ParallelCsvReader(), "src/data/files/ventas.csv");
 
         // buildear el cubo
         Cube cube = builder.buildCube();
@@ -39,12 +40,17 @@ public class App {
 
         TablePrinter.display(cube, "puntos_venta", "fechas");
 
+        // Cada cubo navega por separado: cube2 baja sus propios niveles
+        cube2.drillDown("puntos_venta");
+        cube2.drillDown("puntos_venta");
         Cube dicedCube = cube2.dice("puntos_venta", new String[] { "California", "Alabama", "Arizona" });
         dicedCube.selectMeasure("min");
         dicedCube.selectFact("valor_total");
         TablePrinter.display(dicedCube, "puntos_venta", "fechas");
 
         Cube cube3 = builder.buildCube();
+        cube3.drillDown("puntos_venta");
+        cube3.drillDown("puntos_venta");
         cube3 = cube3.dice("fechas", new String[] { "2019", "2020" }, "puntos_venta", new String[] { "California" });
         cube3.selectMeasure("max");
         TablePrinter.display(cube3, "fechas", "puntos_venta");
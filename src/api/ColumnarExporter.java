@@ -0,0 +1,85 @@
+package api;
+
+import java.io.IOException;
+
+import core.ResultCursor;
+
+/**
+ * La clase ColumnarExporter exporta resultados en un formato binario por columnas, parecido al
+ * formato IPC de Apache Arrow: un esquema con los diccionarios de los ejes y después lotes de
+ * filas, donde cada columna es un bloque contiguo de valores que se puede leer de una sola vez.
+ *
+ * Formato (little endian; cada lote y cada bloque de valores empiezan en un múltiplo de 8 bytes,
+ * con ceros de relleno antes):
+ * <pre>
+ * MAGIC (int), VERSION (int)
+ * cantidad de ejes de fila (int); por eje: dimensión, nivel, cantidad de miembros y cada miembro
+ * cantidad de columnas (int); por columna: etiqueta
+ * lotes: cantidad de filas n (int); por eje, n códigos int32 (posición del miembro en el
+ *        diccionario del eje); por columna, n valores float64
+ * fin: un lote con 0 filas
+ * </pre>
+ * Los textos se escriben como en los snapshots del cubo: largo en bytes (int) y UTF-8.
+ */
+public class ColumnarExporter extends ResultExporter {
+    public static final int MAGIC = 0x52425543;     // "CUBR" en little endian
+    public static final int VERSION = 1;
+
+    private static final int BATCH_VALUES = 1 << 16;    // Valores (códigos más celdas) por lote
+
+    @Override
+    void write(ResultCursor cursor, Output out) throws IOException {
+        int axes = cursor.getRowAxes();
+        int columns = cursor.getColumnCount();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(axes);
+        for (int axis = 0; axis < axes; axis++) {
+            out.writeString(cursor.getDimension(axis));
+            out.writeString(cursor.getLevel(axis));
+            out.writeInt(cursor.getMembers(axis).size());
+            for (Object member : cursor.getMembers(axis)) {
+                out.writeString(member.toString());
+            }
+        }
+        out.writeInt(columns);
+        for (int c = 0; c < columns; c++) {
+            out.writeString(cursor.getColumnLabel(c));
+        }
+
+        // Cada lote se junta por columnas en buffers de tamaño fijo y se escribe en bloque
+        int batchRows = Math.max(1, BATCH_VALUES / Math.max(1, axes + columns));
+        int[][] codes = new int[axes][batchRows];
+        double[][] values = new double[columns][batchRows];
+        int rows = 0;
+        while (cursor.next()) {
+            for (int axis = 0; axis < axes; axis++) {
+                codes[axis][rows] = cursor.getPosition(axis);
+            }
+            double[] rowValues = cursor.getValues();
+            for (int c = 0; c < columns; c++) {
+                values[c][rows] = rowValues[c];
+            }
+            if (++rows == batchRows) {
+                writeBatch(out, codes, values, rows);
+                rows = 0;
+            }
+        }
+        if (rows > 0) {
+            writeBatch(out, codes, values, rows);
+        }
+        out.align();
+        out.writeInt(0);
+    }
+
+    private static void writeBatch(Output out, int[][] codes, double[][] values, int rows) throws IOException {
+        out.align();
+        out.writeInt(rows);
+        for (int[] axisCodes : codes) {
+            out.writeInts(axisCodes, rows);
+        }
+        for (double[] columnValues : values) {
+            out.writeDoubles(columnValues, rows);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import core.ResultCursor;
+
+/**
+ * La clase CsvExporter exporta resultados en CSV: una cabecera con el nivel de cada eje de fila
+ * y la etiqueta de cada columna, y una línea por fila. Los valores se escriben con la
+ * representación más corta que los identifica; los que no son finitos (NaN, infinito) quedan
+ * vacíos. Los campos con el delimitador, comillas o saltos de línea van entre comillas.
+ */
+public class CsvExporter extends ResultExporter {
+    private char delimiter;
+
+    /**
+     * Usa ';' como delimitador, igual que los archivos que lee CsvParser.
+     */
+    public CsvExporter() {
+        this(';');
+    }
+
+    /**
+     * @param delimiter Delimitador de los campos (un caracter ASCII)
+     */
+    public CsvExporter(char delimiter) {
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    void write(ResultCursor cursor, Output out) throws IOException {
+        int axes = cursor.getRowAxes();
+        int columns = cursor.getColumnCount();
+        for (int axis = 0; axis < axes; axis++) {
+            writeField(out, axisName(cursor, axis), axis == 0);
+        }
+        for (int c = 0; c < columns; c++) {
+            writeField(out, cursor.getColumnLabel(c), axes + c == 0);
+        }
+        out.writeByte('\n');
+
+        // Los miembros de cada eje se codifican una sola vez, así cada fila sólo copia bytes
+        byte[][][] members = new byte[axes][][];
+        for (int axis = 0; axis < axes; axis++) {
+            members[axis] = new byte[cursor.getMembers(axis).size()][];
+            for (int m = 0; m < members[axis].length; m++) {
+                members[axis][m] = field(cursor.getMembers(axis).get(m).toString())
+                    .getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        while (cursor.next()) {
+            for (int axis = 0; axis < axes; axis++) {
+                if (axis != 0) {
+                    out.writeByte(delimiter);
+                }
+                out.writeBytes(members[axis][cursor.getPosition(axis)]);
+            }
+            double[] values = cursor.getValues();
+            for (int c = 0; c < columns; c++) {
+                if (axes + c != 0) {
+                    out.writeByte(delimiter);
+                }
+                if (Double.isFinite(values[c])) {
+                    out.writeNumber(values[c]);
+                }
+            }
+            out.writeByte('\n');
+        }
+    }
+
+    private void writeField(Output out, String field, boolean first) throws IOException {
+        if (!first) {
+            out.writeByte(delimiter);
+        }
+        out.writeText(field(field));
+    }
+
+    /**
+     * Devuelve el campo listo para escribir: entre comillas si tiene el delimitador, comillas o
+     * saltos de línea.
+     */
+    private String field(String value) {
+        if (value.indexOf(delimiter) == -1 && value.indexOf('"') == -1
+                && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
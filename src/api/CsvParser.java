@@ -15,6 +15,8 @@ import java.util.regex.Pattern;
  * @see DataParser
  */
 public class CsvParser implements DataParser {
+    private static final Pattern QUOTED = Pattern.compile("(\"[^\"]*\")");
+
     private String delim;
     private boolean dropIndex; // Dropea la primera columna del CSV si es verdadero
 
@@ -52,6 +54,40 @@ public class CsvParser implements DataParser {
         return data;
     }
 
+    /**
+     * Lee sólo la primera línea del archivo.
+     */
+    @Override
+    public List<String> readHeaders(String filepath) throws IOException {
+        try (BufferedReader buffer = new BufferedReader(new FileReader(filepath))) {
+            String line = buffer.readLine();
+            return line == null ? List.of() : fields(line);
+        }
+    }
+
+    /**
+     * Lee el archivo línea por línea, sin guardar las filas en una lista.
+     */
+    @Override
+    public void forEach(String filepath, RowConsumer consumer) throws IOException {
+        CsvRow row = new CsvRow(0);
+        try (BufferedReader buffer = new BufferedReader(new FileReader(filepath))) {
+            String line = buffer.readLine();  // Cabecera
+            while (line != null && (line = buffer.readLine()) != null) {
+                row.setFields(fields(line));
+                consumer.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Campos de una línea, sin la primera columna si dropIndex es verdadero.
+     */
+    private List<String> fields(String line) {
+        List<String> values = splitLine(line);
+        return this.dropIndex ? values.subList(1, values.size()) : values;
+    }
+
     /**
      * Método para dividir un string en una lista de strings.
      *
@@ -63,8 +99,7 @@ public class CsvParser implements DataParser {
         String outputString = inputString;
         String aux = "+";
 
-        Pattern p = Pattern.compile("(\"[^\"]*\")");
-        Matcher m = p.matcher(inputString);
+        Matcher m = QUOTED.matcher(inputString);
         if (m.find()) {
             /**
              * Si el string contiene comillas,
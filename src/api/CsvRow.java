@@ -0,0 +1,354 @@
+package api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fila de un archivo CSV leída por MappedCsvParser o ParallelCsvReader.
+ *
+ * No copia los datos: guarda los límites de cada campo sobre el buffer de lectura
+ * (normalmente un MappedByteBuffer), y los campos se convierten al tipo pedido sólo
+ * cuando se consultan. getInt(), getDouble() y getEpochDay() leen los bytes directamente,
+ * sin crear Strings intermedios.
+ * Un campo entre comillas puede contener al delimitador; las comillas no forman parte del valor.
+ */
+public class CsvRow {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private ByteBuffer buffer;
+    private ByteBuffer own;     // Buffer de los campos cargados con setFields()
+    private int[] starts;   // Inicio de cada campo (inclusive)
+    private int[] ends;     // Fin de cada campo (exclusive)
+    private boolean[] quoted;
+    private int size;
+    private int skip;       // Campos a ignorar al principio (dropIndex)
+
+    CsvRow(int skip) {
+        this.starts = new int[16];
+        this.ends = new int[16];
+        this.quoted = new boolean[16];
+        this.size = 0;
+        this.skip = skip;
+    }
+
+    /**
+     * Carga la fila con campos ya separados (ver DataParser.forEach()). Los bytes de los campos
+     * se copian a un buffer propio, que se reutiliza entre filas.
+     */
+    void setFields(List<String> fields) {
+        if (fields.size() > starts.length) {
+            starts = new int[fields.size()];
+            ends = new int[fields.size()];
+            quoted = new boolean[fields.size()];
+        }
+        if (own == null) {
+            own = ByteBuffer.allocate(256);
+        }
+        int position = 0;
+        for (int f = 0; f < fields.size(); f++) {
+            byte[] bytes = fields.get(f).getBytes(StandardCharsets.UTF_8);
+            if (own.capacity() < position + bytes.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(own.capacity() * 2, position + bytes.length));
+                own.limit(position).position(0);
+                grown.put(own);
+                own = grown;
+            }
+            own.limit(own.capacity()).position(position);
+            own.put(bytes);
+            starts[f] = position;
+            ends[f] = position + bytes.length;
+            quoted[f] = false;
+            position += bytes.length;
+        }
+        this.buffer = own;
+        this.size = fields.size();
+    }
+
+    /**
+     * Divide la línea buffer[from, to) en campos, sin expresiones regulares.
+     */
+    void tokenize(ByteBuffer buffer, int from, int to, byte delim) {
+        this.buffer = buffer;
+        this.size = 0;
+        int i = from;
+        while (true) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                quoted = Arrays.copyOf(quoted, size * 2);
+            }
+            if (i < to && buffer.get(i) == '"') {
+                int close = i + 1;
+                while (close < to && !(buffer.get(close) == '"'
+                        && (close + 1 == to || buffer.get(close + 1) != '"'))) {
+                    close += buffer.get(close) == '"' ? 2 : 1;   // "" es una comilla escapada
+                }
+                starts[size] = i + 1;
+                ends[size] = Math.min(close, to);
+                quoted[size] = true;
+                i = close + 1;
+                while (i < to && buffer.get(i) != delim) {
+                    i++;
+                }
+            } else {
+                int end = i;
+                while (end < to && buffer.get(end) != delim) {
+                    end++;
+                }
+                starts[size] = i;
+                ends[size] = end;
+                quoted[size] = false;
+                i = end;
+            }
+            size++;
+            if (i >= to) {
+                break;
+            }
+            i++;    // Saltea el delimitador
+        }
+    }
+
+    /**
+     * Cantidad de campos de la fila.
+     */
+    public int size() {
+        return Math.max(size - skip, 0);
+    }
+
+    public String getString(int field) {
+        int f = index(field);
+        byte[] bytes = new byte[ends[f] - starts[f]];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(starts[f] + i);
+        }
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        if (quoted[f]) {
+            value = value.replace("\"\"", "\"");
+        }
+        return value;
+    }
+
+    /**
+     * Lee un entero directamente de los bytes del campo.
+     */
+    public int getInt(int field) {
+        int f = index(field);
+        int i = skipSpaces(starts[f], ends[f]);
+        int end = trimSpaces(i, ends[f]);
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw invalid(field, "integer");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(field, "integer");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw invalid(field, "integer");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw invalid(field, "integer");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Lee un double directamente de los bytes del campo.
+     *
+     * Los números con hasta 15 dígitos significativos y exponente decimal chico se calculan
+     * como mantisa entera dividida (o multiplicada) por una potencia de diez exacta, que da
+     * el mismo resultado que Double.parseDouble(). El resto de los casos usa Double.parseDouble().
+     */
+    public double getDouble(int field) {
+        int f = index(field);
+        int start = skipSpaces(starts[f], ends[f]);
+        int end = trimSpaces(start, ends[f]);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;      // Dígitos después del punto
+        boolean point = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                if (digits > 15) {
+                    return slowDouble(field);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!any) {
+            return slowDouble(field);
+        }
+        int exponent = -scale;
+        if (i < end) {
+            if (buffer.get(i) != 'e' && buffer.get(i) != 'E') {
+                return slowDouble(field);
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            if (i == end || end - i > 3) {
+                return slowDouble(field);
+            }
+            int value = 0;
+            for (; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return slowDouble(field);
+                }
+                value = value * 10 + digit;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (exponent < -22 || exponent > 22) {
+            return slowDouble(field);
+        }
+        double value = exponent < 0
+            ? mantissa / POWERS_OF_TEN[-exponent]
+            : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Lee una fecha ISO (yyyy-MM-dd) y devuelve su día epoch, sin crear objetos.
+     */
+    public int getEpochDay(int field) {
+        int f = index(field);
+        int i = skipSpaces(starts[f], ends[f]);
+        int end = trimSpaces(i, ends[f]);
+        if (end - i != 10 || buffer.get(i + 4) != '-' || buffer.get(i + 7) != '-') {
+            throw invalid(field, "date");
+        }
+        int year = digits(field, i, 4);
+        int month = digits(field, i + 5, 2);
+        int day = digits(field, i + 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            throw invalid(field, "date");
+        }
+        return (int) epochDay(year, month, day);
+    }
+
+    public LocalDate getDate(int field) {
+        return LocalDate.ofEpochDay(getEpochDay(field));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CsvRow [");
+        for (int i = 0; i < size(); i++) {
+            builder.append(i == 0 ? "" : ", ").append(getString(i));
+        }
+        return builder.append("]").toString();
+    }
+
+    private int index(int field) {
+        int f = field + skip;
+        if (field < 0 || f >= size) {
+            throw new IndexOutOfBoundsException("Field " + field + " of " + size());
+        }
+        return f;
+    }
+
+    private int skipSpaces(int from, int to) {
+        int i = from;
+        while (i < to && buffer.get(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private int trimSpaces(int from, int to) {
+        int end = to;
+        while (end > from && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private int digits(int field, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(field, "date");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private double slowDouble(int field) {
+        try {
+            return Double.parseDouble(getString(field).trim());
+        } catch (NumberFormatException e) {
+            throw invalid(field, "double");
+        }
+    }
+
+    private NumberFormatException invalid(int field, String type) {
+        return new NumberFormatException("Invalid " + type + " in field " + field + ": " + getString(field));
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Día epoch de una fecha del calendario gregoriano, igual que LocalDate.toEpochDay().
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            if (!leap) {
+                total--;
+            }
+        }
+        return total - 719528;  // Días entre el año 0 y 1970-01-01
+    }
+}
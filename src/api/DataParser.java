@@ -12,4 +12,28 @@ public interface DataParser {
      * @return List<List<String>>
      */
     public List<List<String>> read(String filepath) throws IOException;
+
+    /**
+     * Lee la cabecera (primera línea) del archivo.
+     * Por defecto usa read(); los parsers que pueden leer sólo la primera línea lo sobrescriben.
+     */
+    public default List<String> readHeaders(String filepath) throws IOException {
+        List<List<String>> data = read(filepath);
+        return data.isEmpty() ? List.of() : data.get(0);
+    }
+
+    /**
+     * Recorre las filas del archivo, salvo la cabecera, sin devolverlas en una lista: cada fila
+     * se pasa al consumer como un CsvRow, que se reutiliza entre filas.
+     * Por defecto usa read(); CsvParser lo sobrescribe para leer línea por línea y
+     * MappedCsvParser para leer los campos directamente de los bytes del archivo.
+     */
+    public default void forEach(String filepath, RowConsumer consumer) throws IOException {
+        List<List<String>> data = read(filepath);
+        CsvRow row = new CsvRow(0);
+        for (int i = 1; i < data.size(); i++) {
+            row.setFields(data.get(i));
+            consumer.accept(row);
+        }
+    }
 }
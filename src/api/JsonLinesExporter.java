@@ -0,0 +1,93 @@
+package api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import core.ResultCursor;
+
+/**
+ * La clase JsonLinesExporter exporta resultados en JSON Lines: un objeto JSON por fila, con el
+ * nivel de cada eje de fila y la etiqueta de cada columna como claves. Los miembros numéricos se
+ * escriben como números y el resto como cadenas; los valores que no son finitos, como null.
+ *
+ * Ejemplo: {"provincia":"California","2017":1523.5,"2018":null}
+ */
+public class JsonLinesExporter extends ResultExporter {
+
+    @Override
+    void write(ResultCursor cursor, Output out) throws IOException {
+        int axes = cursor.getRowAxes();
+        int columns = cursor.getColumnCount();
+        // Las claves se codifican una sola vez, con sus comillas, los dos puntos y la coma previa
+        byte[][] keys = new byte[axes + columns][];
+        for (int axis = 0; axis < axes; axis++) {
+            keys[axis] = key(axisName(cursor, axis), axis == 0);
+        }
+        for (int c = 0; c < columns; c++) {
+            keys[axes + c] = key(cursor.getColumnLabel(c), axes + c == 0);
+        }
+        // Igual con los miembros de cada eje, así cada fila sólo copia bytes
+        byte[][][] members = new byte[axes][][];
+        for (int axis = 0; axis < axes; axis++) {
+            members[axis] = new byte[cursor.getMembers(axis).size()][];
+            for (int m = 0; m < members[axis].length; m++) {
+                members[axis][m] = value(cursor.getMembers(axis).get(m)).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        while (cursor.next()) {
+            out.writeByte('{');
+            for (int axis = 0; axis < axes; axis++) {
+                out.writeBytes(keys[axis]);
+                out.writeBytes(members[axis][cursor.getPosition(axis)]);
+            }
+            double[] values = cursor.getValues();
+            for (int c = 0; c < columns; c++) {
+                out.writeBytes(keys[axes + c]);
+                if (Double.isFinite(values[c])) {
+                    out.writeNumber(values[c]);
+                } else {
+                    out.writeText("null");
+                }
+            }
+            out.writeByte('}');
+            out.writeByte('\n');
+        }
+    }
+
+    private static String value(Object member) {
+        if (member instanceof Number && Double.isFinite(((Number) member).doubleValue())) {
+            return member.toString();
+        }
+        return quote(member.toString());
+    }
+
+    private static byte[] key(String name, boolean first) {
+        return ((first ? "" : ",") + quote(name) + ":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Devuelve la cadena entre comillas, con los caracteres especiales de JSON escapados.
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c == '\n') {
+                quoted.append("\\n");
+            } else if (c == '\r') {
+                quoted.append("\\r");
+            } else if (c == '\t') {
+                quoted.append("\\t");
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
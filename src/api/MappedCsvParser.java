@@ -0,0 +1,172 @@
+package api;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * La clase MappedCsvParser implementa la interfaz DataParser leyendo el archivo CSV
+ * mapeado en memoria (FileChannel.map).
+ *
+ * Los delimitadores y comillas se buscan directamente sobre el MappedByteBuffer, sin copiar
+ * el archivo al heap. Además de read(), ofrece forEach() para recorrer las filas como CsvRow
+ * y leer enteros, doubles y fechas desde los bytes, sin crear Strings por campo.
+ *
+ * Nota: el delimitador debe ser un único caracter y los campos no pueden contener saltos de línea.
+ *
+ * @see DataParser
+ */
+public class MappedCsvParser implements DataParser {
+    private static final long MAX_WINDOW = 1 << 30;    // Bytes mapeados por vez
+
+    private byte delim;
+    private boolean dropIndex; // Dropea la primera columna del CSV si es verdadero
+
+    public MappedCsvParser() {
+        this(";", false);
+    }
+
+    /**
+     * Constructor de la clase
+     *
+     * @param delimiter Delimitador de los campos del CSV (un único caracter)
+     * @param dropIndex Indica si se debe dropear la primera columna del CSV
+     */
+    public MappedCsvParser(String delimiter, boolean dropIndex) {
+        byte[] bytes = delimiter.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != 1) {
+            throw new IllegalArgumentException("The delimiter must be a single character");
+        }
+        this.delim = bytes[0];
+        this.dropIndex = dropIndex;
+    }
+
+    @Override
+    public List<List<String>> read(String filepath) throws IOException {
+        List<List<String>> data = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            scan(channel, 0, channel.size(), row -> {
+                List<String> values = new ArrayList<>(row.size());
+                for (int i = 0; i < row.size(); i++) {
+                    values.add(row.getString(i));
+                }
+                data.add(values);
+            });
+        }
+        return data;
+    }
+
+    /**
+     * Lee la cabecera (primera línea) del archivo.
+     */
+    public List<String> readHeaders(String filepath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            long end = headerEnd(channel);
+            List<String> headers = new ArrayList<>();
+            scan(channel, 0, end, row -> {
+                for (int i = 0; i < row.size(); i++) {
+                    headers.add(row.getString(i));
+                }
+            });
+            return headers;
+        }
+    }
+
+    /**
+     * Recorre todas las filas del archivo, salvo la cabecera, sin materializarlas.
+     */
+    public void forEach(String filepath, RowConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            scan(channel, headerEnd(channel), channel.size(), consumer);
+        }
+    }
+
+    /**
+     * Recorre las líneas del rango de bytes [from, to) del archivo, que debe empezar al
+     * principio de una línea. El rango se mapea por ventanas de hasta MAX_WINDOW bytes que
+     * terminan en un salto de línea.
+     */
+    void scan(FileChannel channel, long from, long to, RowConsumer consumer) throws IOException {
+        CsvRow row = new CsvRow(dropIndex ? 1 : 0);
+        long position = from;
+        while (position < to) {
+            long end = Math.min(to, position + MAX_WINDOW);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+            int length = (int) (end - position);
+            int limit = length;
+            if (end < to) {
+                while (limit > 0 && buffer.get(limit - 1) != '\n') {
+                    limit--;
+                }
+                if (limit == 0) {
+                    throw new IOException("Line too long at byte " + position);
+                }
+            }
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    emit(row, buffer, lineStart, i, consumer);
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < limit) {
+                emit(row, buffer, lineStart, limit, consumer);
+            }
+            position += limit;
+        }
+    }
+
+    /**
+     * Cuenta las filas que scan() entregaría para el rango [from, to), sin separarlas en campos:
+     * las líneas con algún caracter además de los saltos de línea.
+     */
+    long countRows(FileChannel channel, long from, long to) throws IOException {
+        long rows = 0;
+        boolean content = false;    // La línea actual tiene algún caracter
+        for (long position = from; position < to; position += MAX_WINDOW) {
+            int length = (int) Math.min(to - position, MAX_WINDOW);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    rows += content ? 1 : 0;
+                    content = false;
+                } else if (b != '\r') {
+                    content = true;
+                }
+            }
+        }
+        return rows + (content ? 1 : 0);
+    }
+
+    /**
+     * Posición del primer byte después de la cabecera.
+     */
+    long headerEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long window = Math.min(size, MAX_WINDOW);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, window);
+        for (int i = 0; i < window; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return size;
+    }
+
+    private void emit(CsvRow row, MappedByteBuffer buffer, int from, int to, RowConsumer consumer) {
+        int end = to;
+        while (end > from && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r')) {
+            end--;
+        }
+        if (end > from) {
+            row.tokenize(buffer, from, end, delim);
+            consumer.accept(row);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * La clase ParallelCsvReader lee un archivo CSV en paralelo y sin materializarlo en memoria.
+ *
+ * El archivo (sin la cabecera) se divide en rangos de bytes que empiezan y terminan en un
+ * salto de línea. Una primera pasada en paralelo cuenta las filas de cada rango, así el
+ * llamador puede reservar de una vez el lugar de todas las filas y saber en qué fila empieza
+ * cada rango. En la segunda pasada cada rango se recorre mapeado en memoria con
+ * MappedCsvParser, se separa en campos sin expresiones regulares y cada fila se entrega a un
+ * RowConsumer propio del rango.
+ *
+ * Nota: el delimitador debe ser un único caracter y los campos no pueden contener saltos de línea.
+ *
+ * @see RowConsumer
+ * @see MappedCsvParser
+ */
+public class ParallelCsvReader {
+    private static final long MIN_RANGE_SIZE = 1 << 22; // Bytes mínimos por rango
+
+    private MappedCsvParser parser; // Recorre cada rango sobre el archivo mapeado
+    private int parallelism;        // Cantidad de hilos de lectura
+
+    public ParallelCsvReader() {
+        this(";", false, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor de la clase
+     *
+     * @param delimiter   Delimitador de los campos del CSV (un único caracter)
+     * @param dropIndex   Indica si se debe dropear la primera columna del CSV
+     * @param parallelism Cantidad de hilos de lectura
+     */
+    public ParallelCsvReader(String delimiter, boolean dropIndex, int parallelism) {
+        this.parser = new MappedCsvParser(delimiter, dropIndex);
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    /**
+     * Lee la cabecera (primera línea) del archivo.
+     */
+    public List<String> readHeaders(String filepath) throws IOException {
+        return parser.readHeaders(filepath);
+    }
+
+    /**
+     * Crea los consumidores de los rangos del archivo (ver read()).
+     */
+    public interface RangeConsumers<T extends RowConsumer> {
+        /**
+         * Se llama una vez, antes de crear los consumidores, con la cantidad de filas del archivo.
+         */
+        void reserve(int rows);
+
+        /**
+         * Crea el consumidor del rango que ocupa las filas [firstRow, firstRow + rows) del archivo.
+         */
+        T create(int firstRow, int rows);
+    }
+
+    /**
+     * Lee todas las filas del archivo, salvo la cabecera, repartiéndolas en rangos paralelos.
+     *
+     * @param filepath  Archivo a leer
+     * @param consumers Crea un consumidor nuevo para cada rango
+     * @return Los consumidores creados, en el orden de los rangos del archivo
+     */
+    public <T extends RowConsumer> List<T> read(String filepath, RangeConsumers<T> consumers)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            long[] bounds = split(channel);
+            List<Callable<Long>> counts = new ArrayList<>();
+            for (int r = 0; r + 1 < bounds.length; r++) {
+                long from = bounds[r];
+                long to = bounds[r + 1];
+                counts.add(() -> parser.countRows(channel, from, to));
+            }
+            List<Long> rows = invokeAll(counts, filepath);
+            long total = 0;
+            for (long count : rows) {
+                total += count;
+            }
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("Too many rows in " + filepath);
+            }
+            consumers.reserve((int) total);
+            List<T> result = new ArrayList<>();
+            List<Callable<T>> tasks = new ArrayList<>();
+            int firstRow = 0;
+            for (int r = 0; r + 1 < bounds.length; r++) {
+                T consumer = consumers.create(firstRow, rows.get(r).intValue());
+                long from = bounds[r];
+                long to = bounds[r + 1];
+                result.add(consumer);
+                tasks.add(() -> {
+                    parser.scan(channel, from, to, consumer);
+                    return consumer;
+                });
+                firstRow += rows.get(r).intValue();
+            }
+            invokeAll(tasks, filepath);
+            return result;
+        }
+    }
+
+    /**
+     * Ejecuta las tareas en paralelo y devuelve sus resultados en orden. Si hay una sola tarea,
+     * la ejecuta en este hilo.
+     */
+    private <V> List<V> invokeAll(List<Callable<V>> tasks, String filepath) throws IOException {
+        List<V> results = new ArrayList<>();
+        if (tasks.size() == 1) {
+            try {
+                results.add(tasks.get(0).call());
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Error while reading " + filepath, e);
+            }
+            return results;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<V> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + filepath, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error while reading " + filepath, e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * Calcula los límites de los rangos de bytes. Cada límite cae justo después de un salto
+     * de línea; el primero es el fin de la cabecera y el último el fin del archivo.
+     */
+    private long[] split(FileChannel channel) throws IOException {
+        long start = parser.headerEnd(channel);
+        long size = channel.size();
+        long ranges = Math.max(1, Math.min((long) parallelism * 4, (size - start) / MIN_RANGE_SIZE));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long step = (size - start) / ranges;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (int r = 1; r < ranges; r++) {
+            long position = Math.max(start + r * step, bounds.get(bounds.size() - 1));
+            long next = nextLineStart(channel, position, buffer);
+            if (next > bounds.get(bounds.size() - 1) && next < size) {
+                bounds.add(next);
+            }
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Devuelve la posición siguiente al primer salto de línea desde position (o el fin del archivo).
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer buffer)
+            throws IOException {
+        long current = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, current);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import core.ResultCursor;
+
+/**
+ * La clase ResultExporter escribe los resultados de un cubo (las filas de un ResultCursor) en un
+ * archivo, un OutputStream o cualquier canal de NIO. Ver CsvExporter, JsonLinesExporter y
+ * ColumnarExporter.
+ *
+ * Los valores se leen de la grilla fila por fila con el cursor y se codifican directamente en un
+ * ByteBuffer directo, sin armar Strings por celda. Los buffers se toman de un pool compartido y
+ * se devuelven al terminar, así exportar muchos resultados no reserva un buffer nuevo cada vez.
+ */
+public abstract class ResultExporter {
+    static final int BUFFER_SIZE = 1 << 20;     // Bytes escritos al canal por vez
+    private static final int POOL_SIZE = 4;     // Buffers que se conservan en el pool
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Exporta la página del cursor a un archivo, que se crea o se reemplaza.
+     */
+    public void export(ResultCursor cursor, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE
+        )) {
+            export(cursor, channel);
+        }
+    }
+
+    /**
+     * Exporta la página del cursor al OutputStream. El stream no se cierra.
+     */
+    public void export(ResultCursor cursor, OutputStream out) throws IOException {
+        export(cursor, Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * Exporta la página del cursor al canal. El canal no se cierra. Al terminar, el cursor queda
+     * al final de la página.
+     */
+    public void export(ResultCursor cursor, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = POOL.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        try {
+            Output out = new Output(channel, buffer);
+            cursor.reset();
+            write(cursor, out);
+            out.flush();
+        } finally {
+            buffer.clear();
+            if (POOL.size() < POOL_SIZE) {
+                POOL.offer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Escribe las filas del cursor, desde el principio de la página, en el formato del exportador.
+     */
+    abstract void write(ResultCursor cursor, Output out) throws IOException;
+
+    /**
+     * Nombre de la columna de un eje de fila: el nivel activo de su dimensión.
+     */
+    static String axisName(ResultCursor cursor, int axis) {
+        return cursor.getLevel(axis);
+    }
+
+    /**
+     * Escritura secuencial al canal a través del ByteBuffer, en little endian.
+     */
+    static final class Output {
+        private WritableByteChannel channel;
+        private ByteBuffer buffer;
+        private StringBuilder number;   // Texto de un número; se reutiliza
+        private long written;
+
+        Output(WritableByteChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.number = new StringBuilder();
+            this.written = 0;
+        }
+
+        void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Escribe el texto en UTF-8, sin reservar memoria si es ASCII.
+         */
+        void writeText(CharSequence text) throws IOException {
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    writeBytes(text.toString().substring(i).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                ensure(1);
+                buffer.put((byte) c);
+            }
+        }
+
+        /**
+         * Escribe el número como texto, con la representación más corta que lo identifica
+         * (la de Double.toString()), sin crear un String.
+         */
+        void writeNumber(double value) throws IOException {
+            number.setLength(0);
+            number.append(value);
+            writeText(number);
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int count = Math.min(bytes.length - offset, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        /**
+         * Escribe un String con su largo en bytes adelante, como en los snapshots.
+         */
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void writeInts(int[] values, int length) throws IOException {
+            align();
+            int offset = 0;
+            while (offset < length) {
+                ensure(4);
+                int count = Math.min(length - offset, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * 4);
+                offset += count;
+            }
+        }
+
+        void writeDoubles(double[] values, int length) throws IOException {
+            align();
+            int offset = 0;
+            while (offset < length) {
+                ensure(8);
+                int count = Math.min(length - offset, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * 8);
+                offset += count;
+            }
+        }
+
+        /**
+         * Completa con ceros hasta la siguiente posición múltiplo de 8.
+         */
+        void align() throws IOException {
+            while ((written + buffer.position()) % 8 != 0) {
+                writeByte(0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
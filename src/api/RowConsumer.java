@@ -0,0 +1,9 @@
+package api;
+
+/**
+ * La interfaz RowConsumer recibe las filas de un archivo a medida que se leen.
+ * La fila recibida sólo es válida durante la llamada; no se debe guardar.
+ */
+public interface RowConsumer {
+    public void accept(CsvRow row);
+}
@@ -1,16 +1,26 @@
 package api;
 
-import java.util.Set;
-import java.util.TreeSet;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 
-import core.Cell;
 import core.Cube;
-import core.Level;
+import core.Grid;
+import core.MeasureColumn;
+import core.MultiGrid;
+import core.QueryMonitor;
+import core.QueryStats;
+import core.Ranking;
+import core.ResultCursor;
 import metrics.Measure;
 
 /**
  * La clase TablePrinter imprime en consola los datos de un cubo.
  * El método display() está sobrecargado; imprime los datos en forma de tabla por CLI.
+ * Las tablas se escriben fila por fila con un TableWriter sobre System.out; para escribirlas en
+ * otro destino se usa TableWriter directamente con Grid.cursor().
+ * Cada display() se registra como una consulta en el monitor del cubo: el groupBy() suma sus
+ * fases, y el armado e impresión de la tabla se mide como fase FORMAT.
  */
 public class TablePrinter {
 
@@ -18,14 +28,16 @@ public class TablePrinter {
      * Impresión en pantalla con todas las dimensiones reducidas a una sola celda.
      */
     public static void display(Cube cube) {
-        String selectedFact = cube.getSelectedFact();
-        Measure measure = cube.getSelectedMeasure();
-        String[][] tableData = new String[2][1];
-        tableData[0][0] = String.format("%s (%s)", selectedFact, measure.getName());
-
-        Cell cell = cube.getCell();
-        tableData[1][0] = String.format("%.2f", measure.calc(cell.getFacts(selectedFact)));
-        print(tableData);
+        QueryMonitor monitor = cube.getMonitor();
+        QueryStats stats = monitor.begin("display", "");
+        try {
+            Grid grid = cube.groupBy();
+            long start = System.nanoTime();
+            print(null, grid.cursor());
+            stats.addPhase(QueryStats.Phase.FORMAT, System.nanoTime() - start);
+        } finally {
+            monitor.end(stats);
+        }
     }
 
     /**
@@ -34,22 +46,24 @@ public class TablePrinter {
      * La primera columna son las etiquetas, la segunda los valores.
      */
     public static void display(Cube cube, String dimension) {
-        Level lvl = cube.getDimension(dimension).getActiveLevel();
-        Set<Object> levelElements = new TreeSet<>(lvl.getElements());
-        String selectedFact = cube.getSelectedFact();
-        Measure measure = cube.getSelectedMeasure();
-        String[][] tableData = new String[levelElements.size() + 1][2];
-        tableData[0][0] = String.format("%s (%s)", lvl.getName(), dimension);
-        tableData[0][1] = String.format("%s (%s)", selectedFact, measure.getName());
+        display(cube, dimension, 0, Long.MAX_VALUE);
+    }
 
-        for (int i = 0; i < levelElements.size(); i++) {
-            String element = levelElements.toArray()[i].toString();
-            Cell cell = cube.getCell(dimension, element.toString());
-            String value = String.format("%.2f", measure.calc(cell.getFacts(selectedFact)));
-            tableData[i + 1][0] = element;
-            tableData[i + 1][1] = value;
+    /**
+     * Sobrecarga de display() para una dimensión que imprime sólo una página: hasta limit filas
+     * a partir de la fila offset. Las filas se formatean a medida que se escriben.
+     */
+    public static void display(Cube cube, String dimension, long offset, long limit) {
+        QueryMonitor monitor = cube.getMonitor();
+        QueryStats stats = monitor.begin("display", dimension);
+        try {
+            Grid grid = cube.groupBy(dimension);
+            long start = System.nanoTime();
+            print(null, grid.cursor(offset, limit));
+            stats.addPhase(QueryStats.Phase.FORMAT, System.nanoTime() - start);
+        } finally {
+            monitor.end(stats);
         }
-        print(tableData);
     }
 
     /**
@@ -60,98 +74,127 @@ public class TablePrinter {
      * que informa las dimensiones y medidas seleccionadas.
      */
     public static void display(Cube cube, String rowDim, String colDim) {
-        Level rowLevel = cube.getDimension(rowDim).getActiveLevel();
-        Level colLevel = cube.getDimension(colDim).getActiveLevel();
-        Set<Object> rowElements = new TreeSet<>(rowLevel.getElements());
-        Set<Object> colElements = new TreeSet<>(colLevel.getElements());
-        String selectedFact = cube.getSelectedFact();
-        Measure measure = cube.getSelectedMeasure();
-        String[][] tableData = new String[rowElements.size() + 1][colElements.size() + 1];
-        tableData[0][0] = String.format("%s (%s)", rowLevel.getName(), rowDim);
-
-        for (int i = 0; i < colElements.size(); i++) {
-            tableData[0][i + 1] = colElements.toArray()[i].toString();
-        }
+        display(cube, rowDim, colDim, 0, Long.MAX_VALUE);
+    }
 
-        int row = 1;
-        for (Object rowElement : rowElements) {
-            tableData[row][0] = rowElement.toString();
-            int col = 1;
-            for (Object colElement : colElements) {
-                Cell cell = cube.getCell(rowDim, rowElement.toString(), colDim, colElement.toString());
-                String value = String.format("%.2f", measure.calc(cell.getFacts(selectedFact)));
-                tableData[row][col] = value;
-                col++;
-            }
-            row++;
+    /**
+     * Sobrecarga de display() para dos dimensiones que imprime sólo una página: hasta limit filas
+     * de rowDim a partir de la fila offset, con todas las columnas. La tabla no se arma completa:
+     * las filas se formatean a medida que se escriben.
+     */
+    public static void display(Cube cube, String rowDim, String colDim, long offset, long limit) {
+        QueryMonitor monitor = cube.getMonitor();
+        QueryStats stats = monitor.begin("display", rowDim + "," + colDim);
+        try {
+            Grid grid = cube.groupBy(rowDim, colDim);
+            long start = System.nanoTime();
+            String selectedFact = cube.getSelectedFact();
+            Measure measure = cube.getSelectedMeasure();
+            String title = String.format("%s (%s) vs %s (%s) [%s (%s)]", grid.getLevel(0), rowDim,
+                    grid.getLevel(1), colDim, selectedFact, measure.getName());
+            print(title, grid.cursor(offset, limit));
+            stats.addPhase(QueryStats.Phase.FORMAT, System.nanoTime() - start);
+        } finally {
+            monitor.end(stats);
         }
-
-        System.out.println(String.format("%s (%s) vs %s (%s) [%s (%s)]", rowLevel.getName(), rowDim,
-                colLevel.getName(), colDim, selectedFact, measure.getName()));
-        print(tableData);
     }
 
     /**
-     * Usa la tableData y la imprime en pantalla.
+     * Impresión en pantalla de una tabla de 2 filas con una columna por cada par hecho/medida,
+     * con todas las dimensiones reducidas a una sola celda.
      */
-    private static void print(String[][] tableData) {
-        if (tableData == null || tableData.length == 0) {
-            System.out.println("No data to display.");
-            return;
+    public static void display(Cube cube, List<MeasureColumn> columns) {
+        QueryMonitor monitor = cube.getMonitor();
+        QueryStats stats = monitor.begin("display", columns.toString());
+        try {
+            MultiGrid grid = cube.groupBy(columns);
+            long start = System.nanoTime();
+            print(null, grid.cursor());
+            stats.addPhase(QueryStats.Phase.FORMAT, System.nanoTime() - start);
+        } finally {
+            monitor.end(stats);
         }
+    }
 
-        int[] columnWidths = getColumnWidths(tableData);
-
-        printSeparator(columnWidths);
-        for (String[] row : tableData) {
-            printRow(row, columnWidths);
-            printSeparator(columnWidths);
+    /**
+     * Impresión en pantalla de una tabla de N+1 filas y una columna por cada par hecho/medida,
+     * además de la columna de etiquetas. Todas las columnas se calculan en una sola pasada.
+     */
+    public static void display(Cube cube, String dimension, List<MeasureColumn> columns) {
+        QueryMonitor monitor = cube.getMonitor();
+        QueryStats stats = monitor.begin("display", dimension + "|" + columns);
+        try {
+            MultiGrid grid = cube.groupBy(columns, dimension);
+            long start = System.nanoTime();
+            print(null, grid.cursor());
+            stats.addPhase(QueryStats.Phase.FORMAT, System.nanoTime() - start);
+        } finally {
+            monitor.end(stats);
         }
-        System.out.println("\n");
     }
 
     /**
-     * Método auxiliar de print() que calcula los tamaños.
+     * Impresión en pantalla de un ranking (ver Cube.top() y Cube.bottom()): una fila por
+     * miembro, con su posición, del primero al último de cada partición.
      */
-    private static int[] getColumnWidths(String[][] tableData) {
-        int columns = tableData[0].length;
-        int[] columnWidths = new int[columns];
+    public static void display(Ranking ranking) {
+        boolean partitioned = ranking.getPartitionDimension() != null;
+        int rows = 0;
+        for (int p = 0; p < ranking.getPartitions().size(); p++) {
+            rows += ranking.getMembers(p).size();
+        }
+        int offset = partitioned ? 1 : 0;
+        String[][] tableData = new String[rows + 1][3 + offset];
+        if (partitioned) {
+            tableData[0][0] = String.format("%s (%s)", ranking.getPartitionLevel(), ranking.getPartitionDimension());
+        }
+        tableData[0][offset] = "#";
+        tableData[0][offset + 1] = String.format("%s (%s)", ranking.getLevel(), ranking.getDimension());
+        tableData[0][offset + 2] = String.format("%s (%s)", ranking.getFact(), ranking.getMeasure());
 
-        for (String[] row : tableData) {
-            for (int i = 0; i < row.length; i++) {
-                if (row[i].length() > columnWidths[i]) {
-                    columnWidths[i] = row[i].length();
+        int row = 1;
+        for (int p = 0; p < ranking.getPartitions().size(); p++) {
+            List<Object> members = ranking.getMembers(p);
+            for (int rank = 0; rank < members.size(); rank++) {
+                if (partitioned) {
+                    tableData[row][0] = ranking.getPartitions().get(p).toString();
                 }
+                tableData[row][offset] = String.valueOf(rank + 1);
+                tableData[row][offset + 1] = members.get(rank).toString();
+                tableData[row][offset + 2] = String.format("%.2f", ranking.getValue(p, rank));
+                row++;
             }
         }
-        return columnWidths;
+        print(tableData);
     }
 
     /**
-     * Método auxiliar de print() que imprime las líneas divisorias horizontales.
+     * Imprime en pantalla la página del cursor, precedida por el título si no es null.
      */
-    private static void printSeparator(int[] columnWidths) {
-        for (int width : columnWidths) {
-            System.out.print("+");
-            for (int i = 0; i < width + 2; i++) {
-                System.out.print("-");
+    private static void print(String title, ResultCursor cursor) {
+        try {
+            TableWriter writer = new TableWriter(System.out);
+            if (title != null) {
+                writer.writeLine(title);
             }
+            writer.write(cursor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        System.out.println("+");
+        System.out.println("\n");
     }
 
     /**
-     * Método auxiliar de print() que imprime las filas de la tabla.
+     * Usa la tableData y la imprime en pantalla.
      */
-    private static void printRow(String[] row, int[] columnWidths) {
-        for (int i = 0; i < row.length; i++) {
-            System.out.print("| ");
-            System.out.print(row[i]);
-            for (int j = row[i].length(); j < columnWidths[i]; j++) {
-                System.out.print(" ");
-            }
-            System.out.print(" ");
+    private static void print(String[][] tableData) {
+        try {
+            new TableWriter(System.out).write(tableData);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (tableData != null && tableData.length != 0) {
+            System.out.println("\n");
         }
-        System.out.println("|");
     }
 }
@@ -0,0 +1,196 @@
+package api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Formatter;
+
+import core.ResultCursor;
+
+/**
+ * La clase TableWriter escribe tablas con el formato de TablePrinter en cualquier Writer u
+ * OutputStream, a través de un buffer, en lugar de imprimir carácter por carácter.
+ *
+ * Con un ResultCursor, la tabla se arma fila por fila: una primera pasada por la página calcula
+ * el ancho de cada columna y una segunda escribe las filas, así que nunca se guarda la tabla
+ * completa en memoria. Los valores se formatean con dos decimales, como en TablePrinter.
+ */
+public class TableWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PADDING_SIZE = 256;
+
+    private Writer out;
+    private StringBuilder text;     // Texto de la celda actual; se reutiliza entre celdas
+    private Formatter formatter;    // Formatea los valores en text
+    private char[] chars;           // Copia de text para escribirla sin crear un String
+    private char[] spaces;
+    private char[] dashes;
+
+    /**
+     * @param out Destino; se escribe a través de un BufferedWriter, que se vacía al final de
+     *            cada tabla. No se cierra.
+     */
+    public TableWriter(Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+        this.text = new StringBuilder();
+        this.formatter = new Formatter(text);
+        this.chars = new char[PADDING_SIZE];
+        this.spaces = new char[PADDING_SIZE];
+        this.dashes = new char[PADDING_SIZE];
+        Arrays.fill(spaces, ' ');
+        Arrays.fill(dashes, '-');
+    }
+
+    /**
+     * Escribe en el OutputStream con la codificación por defecto, como System.out.
+     */
+    public TableWriter(OutputStream out) {
+        this(out, Charset.defaultCharset());
+    }
+
+    public TableWriter(OutputStream out, Charset charset) {
+        this(new OutputStreamWriter(out, charset));
+    }
+
+    /**
+     * Escribe la página del cursor como tabla: una columna por eje de fila, con los miembros,
+     * y una por columna del cursor, con los valores. Al terminar, el cursor queda al final de
+     * la página.
+     */
+    public void write(ResultCursor cursor) throws IOException {
+        int axes = cursor.getRowAxes();
+        int columns = cursor.getColumnCount();
+        int[] widths = new int[axes + columns];
+        for (int axis = 0; axis < axes; axis++) {
+            widths[axis] = header(cursor, axis).length();
+        }
+        for (int c = 0; c < columns; c++) {
+            widths[axes + c] = cursor.getColumnLabel(c).length();
+        }
+        cursor.reset();
+        while (cursor.next()) {
+            for (int axis = 0; axis < axes; axis++) {
+                widths[axis] = Math.max(widths[axis], cursor.getMember(axis).toString().length());
+            }
+            for (int c = 0; c < columns; c++) {
+                widths[axes + c] = Math.max(widths[axes + c], format(cursor.getValue(c)).length());
+            }
+        }
+
+        writeSeparator(widths);
+        for (int axis = 0; axis < axes; axis++) {
+            writeCell(header(cursor, axis), widths[axis]);
+        }
+        for (int c = 0; c < columns; c++) {
+            writeCell(cursor.getColumnLabel(c), widths[axes + c]);
+        }
+        endRow(widths);
+        cursor.reset();
+        while (cursor.next()) {
+            for (int axis = 0; axis < axes; axis++) {
+                writeCell(cursor.getMember(axis).toString(), widths[axis]);
+            }
+            for (int c = 0; c < columns; c++) {
+                writeValue(cursor.getValue(c), widths[axes + c]);
+            }
+            endRow(widths);
+        }
+        out.flush();
+    }
+
+    /**
+     * Escribe una tabla ya armada; la primera fila es el encabezado.
+     */
+    public void write(String[][] tableData) throws IOException {
+        if (tableData == null || tableData.length == 0) {
+            writeLine("No data to display.");
+            return;
+        }
+        int[] widths = new int[tableData[0].length];
+        for (String[] row : tableData) {
+            for (int i = 0; i < row.length; i++) {
+                widths[i] = Math.max(widths[i], row[i].length());
+            }
+        }
+        writeSeparator(widths);
+        for (String[] row : tableData) {
+            for (int i = 0; i < row.length; i++) {
+                writeCell(row[i], widths[i]);
+            }
+            endRow(widths);
+        }
+        out.flush();
+    }
+
+    /**
+     * Escribe una línea de texto (por ejemplo, el título de una tabla).
+     */
+    public void writeLine(String line) throws IOException {
+        out.write(line);
+        out.write(System.lineSeparator());
+        out.flush();
+    }
+
+    private static String header(ResultCursor cursor, int axis) {
+        return String.format("%s (%s)", cursor.getLevel(axis), cursor.getDimension(axis));
+    }
+
+    /**
+     * Formatea el valor en el buffer de texto reutilizado.
+     */
+    private CharSequence format(double value) {
+        text.setLength(0);
+        formatter.format("%.2f", value);
+        return text;
+    }
+
+    private void writeCell(String cell, int width) throws IOException {
+        out.write("| ");
+        out.write(cell);
+        repeat(spaces, width - cell.length() + 1);
+    }
+
+    /**
+     * Escribe un valor formateado sin crear un String: se copia de text a chars.
+     */
+    private void writeValue(double value, int width) throws IOException {
+        int length = format(value).length();
+        if (chars.length < length) {
+            chars = new char[length];
+        }
+        text.getChars(0, length, chars, 0);
+        out.write("| ");
+        out.write(chars, 0, length);
+        repeat(spaces, width - length + 1);
+    }
+
+    /**
+     * Cierra la fila actual y escribe la línea divisoria que le sigue.
+     */
+    private void endRow(int[] widths) throws IOException {
+        out.write('|');
+        out.write(System.lineSeparator());
+        writeSeparator(widths);
+    }
+
+    private void writeSeparator(int[] widths) throws IOException {
+        for (int width : widths) {
+            out.write('+');
+            repeat(dashes, width + 2);
+        }
+        out.write('+');
+        out.write(System.lineSeparator());
+    }
+
+    private void repeat(char[] chars, int count) throws IOException {
+        while (count > 0) {
+            int n = Math.min(count, chars.length);
+            out.write(chars, 0, n);
+            count -= n;
+        }
+    }
+}
@@ -3,14 +3,18 @@ package config;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import api.CsvRow;
 import api.DataParser;
 import api.DataType;
+import api.ParallelCsvReader;
+import api.RowConsumer;
 import core.*;
 import metrics.*;
 
@@ -22,16 +26,35 @@ import metrics.*;
  */
 public class CubeBuilder {
     private List<Dimension> dimensions;         // Lista de dimensiones
-    private List<Cell> cells;                   // Lista de celdas
+    private FactTable table;                    // Tabla de hechos columnar
+    private BitmapIndex index;                  // Índice de bitmaps sobre las foreign keys
     private List<String> foreignKeys;           // Lista de claves foráneas
     private List<String> facts;                 // Lista de hechos
-
+    private List<Map<String, String>> aggregateLevels;  // Niveles de cada agregado a materializar
+    private List<Aggregate> aggregates;         // Agregados materializados, compartidos entre cubos
+    private Cube cube;                          // Cubo ya construido; buildCube() devuelve vistas de él
+    private QueryMonitor monitor;               // Monitor de consultas de todos los cubos construidos
+    private boolean aggregateSketches;          // Si los agregados también guardan HLL y t-digest
 
     public CubeBuilder() {
         this.dimensions = new ArrayList<>();
-        this.cells = new ArrayList<>();
+        this.table = null;
+        this.index = null;
         this.foreignKeys = new ArrayList<>();
         this.facts = new ArrayList<>();
+        this.aggregateLevels = new ArrayList<>();
+        this.aggregates = null;
+        this.cube = null;
+        this.monitor = new QueryMonitor();
+        this.aggregateSketches = false;
+    }
+
+    /**
+     * Devuelve el monitor de consultas que comparten todos los cubos construidos por este builder,
+     * también después de appendFacts() o appendMembers().
+     */
+    public QueryMonitor getMonitor() {
+        return this.monitor;
     }
 
     /**
@@ -61,6 +84,120 @@ public class CubeBuilder {
 
         foreignKeys.add(idKey);
 
+        for (Map.Entry<String, List<Object>> column : parseColumns(data, model).entrySet()) {
+            levels.put(column.getKey(), new Level(column.getKey(), column.getValue()));
+        }
+
+        List<String> hierarchy = new ArrayList<>(headers);
+        hierarchy.remove(idKey);
+        Collections.reverse(hierarchy);
+        this.dimensions.add(new Dimension(name, idKey, levels, hierarchy));
+        this.cube = null;
+    }
+
+    /**
+     * Define el miembro al que se asignan las filas de hechos cuyo id no existe en la dimensión
+     * (por ejemplo "Desconocido"). Cada id desconocido se agrega a la dimensión como miembro
+     * inferido con ese valor en todos los niveles, así esas filas se pueden agrupar y filtrar.
+     * Con null (el valor por defecto), esas filas no aparecen al agrupar por la dimensión.
+     */
+    public void setUnknownMember(String dimension, String unknownMember) {
+        int position = dimensionPosition(dimension);
+        Dimension current = this.dimensions.get(position);
+        this.dimensions.set(position, current.withUnknownMember(unknownMember));
+        this.cube = null;
+    }
+
+    /**
+     * Agrega o actualiza miembros de una dimensión ya cargada, leídos desde un archivo con las
+     * mismas columnas que el original (ver Dimension.appendMembers()). Los ids nuevos se agregan;
+     * los existentes, como los miembros inferidos, se actualizan con los valores del archivo.
+     * Los cubos construidos antes no cambian.
+     *
+     * @return Vista sobre el cubo con los miembros agregados
+     */
+    public Cube appendMembers(
+        String name,
+        List<DataType> model,
+        DataParser parser,
+        String path
+    ) throws IOException {
+        int position = dimensionPosition(name);
+        Dimension dimension = this.dimensions.get(position);
+        List<List<String>> data = parser.read(path);
+        List<String> headers = data.get(0);
+
+        // Validaciones
+        if (headers.size() != model.size()) {
+            throw new IOException("The model and the data do not match");
+        }
+        if (headers.size() != dimension.getLevels().size() + 1
+                || !headers.contains(dimension.getIdKey())
+                || !headers.containsAll(dimension.getLevels())) {
+            throw new IOException("The data does not match the dimension levels");
+        }
+
+        this.dimensions.set(position, dimension.appendMembers(parseColumns(data, model)));
+        rebuildAggregates(List.of(name));
+        this.cube = null;
+        return buildCube();
+    }
+
+    /**
+     * Lee y parsea los hechos desde un archivo indicado en path.
+     * Las filas se recorren con DataParser.forEach(), sin armar la lista de strings del archivo
+     * si el parser no la necesita: MappedCsvParser lee los enteros y doubles directamente de los
+     * bytes del archivo.
+     */
+    public void addFacts(String name, DataParser parser, String path) throws IOException {
+        List<String> headers = parser.readHeaders(path);
+        setFactHeaders(headers);
+        this.table = readFacts(parser, path, headers);
+        this.cube = null;
+    }
+
+    /**
+     * Lee y parsea los hechos desde un archivo indicado en path, en paralelo y por streaming.
+     * Primero se cuentan las filas de cada rango del archivo; después cada rango carga sus valores
+     * directamente en las columnas de una sola tabla, ya del tamaño final, a partir de su primera
+     * fila. Nunca se arma la lista de strings del archivo completo ni se copian las columnas.
+     */
+    public void addFacts(String name, ParallelCsvReader reader, String path) throws IOException {
+        List<String> headers = reader.readHeaders(path);
+        setFactHeaders(headers);
+        this.table = readFacts(reader, path, headers);
+        this.cube = null;
+    }
+
+    /**
+     * Agrega los hechos de un nuevo archivo (por ejemplo, el lote diario de ventas) a los ya cargados,
+     * sin reconstruir el cubo: las columnas, el índice de bitmaps y los agregados se extienden
+     * recorriendo sólo las filas nuevas.
+     * Los cubos construidos antes no cambian; los siguientes buildCube() ven los hechos agregados.
+     *
+     * @return Vista sobre el cubo con los hechos agregados
+     */
+    public Cube appendFacts(String name, DataParser parser, String path) throws IOException {
+        List<String> headers = parser.readHeaders(path);
+        checkAppendHeaders(headers);
+        return append(readFacts(parser, path, headers));
+    }
+
+    /**
+     * Sobrecarga de appendFacts() que lee el archivo en paralelo y por streaming.
+     */
+    public Cube appendFacts(String name, ParallelCsvReader reader, String path) throws IOException {
+        List<String> headers = reader.readHeaders(path);
+        checkAppendHeaders(headers);
+        return append(readFacts(reader, path, headers));
+    }
+
+    /**
+     * Convierte cada columna de un archivo de dimensión al tipo indicado en el modelo.
+     */
+    private static Map<String, List<Object>> parseColumns(List<List<String>> data, List<DataType> model) {
+        List<String> headers = data.get(0);
+        Map<String, List<Object>> columns = new HashMap<>();
         for (int i = 0; i < headers.size(); i++) {
             List<Object> elements = new ArrayList<>();
             for (int j = 1; j < data.size(); j++) {
@@ -82,22 +219,125 @@ public class CubeBuilder {
                         break;
                 }
             }
-            levels.put(headers.get(i), new Level(headers.get(i), elements));
+            columns.put(headers.get(i), elements);
         }
+        return columns;
+    }
 
-        List<String> hierarchy = new ArrayList<>(headers);
-        hierarchy.remove(idKey);
-        Collections.reverse(hierarchy);
-        this.dimensions.add(new Dimension(name, idKey, levels, hierarchy));
+    private int dimensionPosition(String name) {
+        for (int i = 0; i < this.dimensions.size(); i++) {
+            if (this.dimensions.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Dimension not found: " + name);
     }
 
     /**
-     * Lee y parsea los hechos desde un archivo indicado en path.
+     * Agrega como miembros inferidos los ids de los hechos que no existen en las dimensiones
+     * con miembro desconocido.
+     *
+     * @return Nombres de las dimensiones que cambiaron
      */
-    public void addFacts(String name, DataParser parser, String path) throws IOException {
-        List<List<String>> data = parser.read(path);
-        List<String> headers = data.get(0);
+    private List<String> addUnknownIds() {
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < this.dimensions.size(); i++) {
+            Dimension dimension = this.dimensions.get(i);
+            Dimension routed = dimension.withUnknownIds(this.index);
+            if (routed != dimension) {
+                this.dimensions.set(i, routed);
+                changed.add(routed.getName());
+            }
+        }
+        return changed;
+    }
 
+    /**
+     * Recalcula los agregados ya construidos que usan alguna de las dimensiones indicadas.
+     */
+    private void rebuildAggregates(List<String> changedDimensions) {
+        if (this.aggregates == null || this.table == null) {
+            return;
+        }
+        for (int i = 0; i < this.aggregates.size(); i++) {
+            Map<String, String> levels = this.aggregateLevels.get(i);
+            if (!Collections.disjoint(levels.keySet(), changedDimensions)) {
+                this.aggregates.set(
+                    i, new Aggregate(this.table, this.dimensions, levels, this.facts, aggregateMeasures())
+                );
+            }
+        }
+    }
+
+    private FactTable readFacts(ParallelCsvReader reader, String path, List<String> headers)
+            throws IOException {
+        FactRanges ranges = new FactRanges(headers, foreignKeys, this.facts);
+        for (FactRows part : reader.read(path, ranges)) {
+            if (part.next != part.end) {
+                throw new IOException("The file " + path + " changed while it was read");
+            }
+        }
+        return ranges.table;
+    }
+
+    private FactTable readFacts(DataParser parser, String path, List<String> headers)
+            throws IOException {
+        FactRows rows = new FactRows(headers, new FactTable(foreignKeys, this.facts), -1, 0);
+        parser.forEach(path, rows);
+        return rows.table;
+    }
+
+    /**
+     * Extiende la tabla, el índice y los agregados con las filas nuevas y arma una versión nueva
+     * del cubo. Los cubos ya construidos conservan la versión anterior.
+     */
+    private Cube append(FactTable rows) {
+        int from = this.table.size();
+        this.table = this.table.append(rows);
+        if (this.index == null) {
+            this.index = new BitmapIndex(this.table);
+        } else {
+            this.index = this.index.append(this.table, from);
+        }
+        List<String> changed = addUnknownIds();
+        if (this.aggregates != null) {
+            List<Aggregate> appended = new ArrayList<>();
+            for (int i = 0; i < this.aggregates.size(); i++) {
+                if (Collections.disjoint(this.aggregateLevels.get(i).keySet(), changed)) {
+                    appended.add(this.aggregates.get(i).append(this.table, from));
+                } else {
+                    appended.add(new Aggregate(
+                        this.table, this.dimensions, this.aggregateLevels.get(i), this.facts, aggregateMeasures()
+                    ));
+                }
+            }
+            this.aggregates = appended;
+        }
+        this.cube = null;
+        return buildCube();
+    }
+
+    /**
+     * Valida que la cabecera de un archivo a agregar tenga las mismas columnas que los hechos cargados.
+     */
+    private void checkAppendHeaders(List<String> headers) throws IOException {
+        if (this.table == null) {
+            throw new IOException("There are no facts to append to");
+        }
+        if (!headers.containsAll(foreignKeys)) {
+            throw new IOException("The foreign keys do not exist in the data");
+        }
+        List<String> newFacts = new ArrayList<>(headers);
+        newFacts.removeAll(foreignKeys);
+        if (!new HashSet<>(newFacts).equals(new HashSet<>(this.facts))) {
+            throw new IOException("The facts do not match the loaded facts");
+        }
+    }
+
+    /**
+     * Valida la cabecera del archivo de hechos y registra los nombres de los hechos.
+     */
+    private void setFactHeaders(List<String> headers) throws IOException {
         // Validaciones
         if (foreignKeys.size() == 0) {
             throw new IOException("There are no dimensions to relate the facts");
@@ -113,44 +353,183 @@ public class CubeBuilder {
 
         this.facts.addAll(headers);
         this.facts.removeAll(foreignKeys);
+    }
 
-        for (int i = 1; i < data.size(); i++) {
-            Map<String, Integer> keys = new HashMap<>();
-            Map<String, List<Double>> facts = new HashMap<>();
-            for (int j = 0; j < headers.size(); j++) {
-                if (foreignKeys.contains(headers.get(j))) {
-                    keys.put(headers.get(j), Integer.parseInt(data.get(i).get(j)));
-                } else {
-                    if (facts.containsKey(headers.get(j))) {
-                        facts.get(headers.get(j)).add(Double.parseDouble(data.get(i).get(j)));
-                    } else {
-                        facts.put(headers.get(j), new ArrayList<>(
-                            Arrays.asList(Double.parseDouble(data.get(i).get(j)))
-                        ));
-                    }
+    /**
+     * Carga las filas de una parte del archivo de hechos en las columnas de la tabla.
+     * Sabe en qué posición del archivo está cada foreign key y cada hecho.
+     */
+    private static class FactRows implements RowConsumer {
+        private FactTable table;
+        private int next;               // Próxima fila a escribir con setRow(); -1 usa addRow()
+        private int end;                // Fin de las filas de esta parte, si se usa setRow()
+        private int[] keyPositions;     // Posición de cada foreign key dentro del archivo
+        private int[] factPositions;    // Posición de cada hecho dentro del archivo
+        private int[] keys;
+        private double[] values;
+
+        FactRows(List<String> headers, FactTable table, int firstRow, int rows) {
+            List<String> foreignKeys = table.getForeignKeys();
+            List<String> facts = table.getFacts();
+            this.table = table;
+            this.next = firstRow;
+            this.end = firstRow + rows;
+            this.keyPositions = new int[foreignKeys.size()];
+            for (int k = 0; k < keyPositions.length; k++) {
+                keyPositions[k] = headers.indexOf(foreignKeys.get(k));
+            }
+            this.factPositions = new int[facts.size()];
+            for (int f = 0; f < factPositions.length; f++) {
+                factPositions[f] = headers.indexOf(facts.get(f));
+            }
+            this.keys = new int[keyPositions.length];
+            this.values = new double[factPositions.length];
+        }
+
+        @Override
+        public void accept(CsvRow row) {
+            for (int k = 0; k < keyPositions.length; k++) {
+                keys[k] = row.getInt(keyPositions[k]);
+            }
+            for (int f = 0; f < factPositions.length; f++) {
+                values[f] = row.getDouble(factPositions[f]);
+            }
+            if (next == -1) {
+                table.addRow(keys, values);
+            } else {
+                table.setRow(next++, keys, values);
+            }
+        }
+    }
+
+    /**
+     * Crea una tabla del tamaño del archivo y una parte por cada rango de ParallelCsvReader,
+     * que escribe sus filas a partir de la primera fila del rango.
+     */
+    private static class FactRanges implements ParallelCsvReader.RangeConsumers<FactRows> {
+        private List<String> headers;
+        private List<String> foreignKeys;
+        private List<String> facts;
+        private FactTable table;
+
+        FactRanges(List<String> headers, List<String> foreignKeys, List<String> facts) {
+            this.headers = headers;
+            this.foreignKeys = foreignKeys;
+            this.facts = facts;
+        }
+
+        @Override
+        public void reserve(int rows) {
+            this.table = FactTable.withRows(foreignKeys, facts, rows);
+        }
+
+        @Override
+        public FactRows create(int firstRow, int rows) {
+            return new FactRows(headers, table, firstRow, rows);
+        }
+    }
+
+    /**
+     * Pide materializar un agregado de los hechos para la combinación de niveles indicada,
+     * por ejemplo { fechas: anio, puntos_venta: provincia }.
+     * Los agregados se calculan al construir el cubo; las consultas cuyos niveles se deducen
+     * de los del agregado se responden desde él, sin recorrer la tabla de hechos.
+     *
+     * @param levels Mapa de nombre de dimensión a nivel a agrupar
+     */
+    public void addAggregate(Map<String, String> levels) {
+        for (Map.Entry<String, String> entry : levels.entrySet()) {
+            Dimension dimension = null;
+            for (Dimension d : this.dimensions) {
+                if (d.getName().equals(entry.getKey())) {
+                    dimension = d;
                 }
             }
-            this.cells.add(new Cell(keys, facts));
+            if (dimension == null) {
+                throw new IllegalArgumentException("Dimension not found: " + entry.getKey());
+            }
+            if (dimension.getLevel(entry.getValue()) == null) {
+                throw new IllegalArgumentException("Level not found: " + entry.getValue());
+            }
         }
+        this.aggregateLevels.add(new LinkedHashMap<>(levels));
+        this.aggregates = null;
+        this.cube = null;
+    }
+
+    /**
+     * Indica si los agregados materializados también guardan las medidas aproximadas de estado
+     * acotado (distintos_aprox, mediana, p95). Por defecto sólo guardan las medidas que se
+     * derivan de cantidad, suma, mínimo y máximo, que ocupan unos pocos doubles por celda; los
+     * sketches ocupan varios KB por celda y hacen mucho más lenta la construcción.
+     * Se tiene que llamar antes de buildCube().
+     */
+    public void setAggregateSketches(boolean aggregateSketches) {
+        this.aggregateSketches = aggregateSketches;
+        this.aggregates = null;
+        this.cube = null;
+    }
+
+    /**
+     * Sobrecarga de addAggregate() para una dimensión.
+     */
+    public void addAggregate(String dimension, String level) {
+        Map<String, String> levels = new LinkedHashMap<>();
+        levels.put(dimension, level);
+        addAggregate(levels);
+    }
+
+    /**
+     * Sobrecarga de addAggregate() para dos dimensiones.
+     */
+    public void addAggregate(String dim1, String level1, String dim2, String level2) {
+        Map<String, String> levels = new LinkedHashMap<>();
+        levels.put(dim1, level1);
+        levels.put(dim2, level2);
+        addAggregate(levels);
     }
 
     /**
      * Construye el cubo con las dimensiones y hechos ya parseados.
      * Las medidas son añadidas automáticamente.
+     * Los datos del cubo (índice de bitmaps y agregados incluidos) se arman en la primera llamada;
+     * cada llamada devuelve una vista nueva e independiente sobre esos mismos datos.
      */
     public Cube buildCube() {
+        if (this.cube != null) {
+            return this.cube.newView();
+        }
         Cube cube = new Cube();
+        cube.setMonitor(this.monitor);
+        if (this.table != null && this.index == null) {
+            this.index = new BitmapIndex(this.table);
+        }
+        if (this.index != null) {
+            rebuildAggregates(addUnknownIds());
+        }
         for (Dimension d : this.dimensions) {
             cube.addDimension(d);
         }
-        for (Cell c : this.cells) {
-            cube.addCell(c);
+        if (this.table != null) {
+            cube.setFactTable(this.table, this.index);
+            if (this.aggregates == null) {
+                this.aggregates = new ArrayList<>();
+                for (Map<String, String> levels : this.aggregateLevels) {
+                    this.aggregates.add(
+                        new Aggregate(this.table, this.dimensions, levels, this.facts, aggregateMeasures())
+                    );
+                }
+            }
+            for (Aggregate aggregate : this.aggregates) {
+                cube.addAggregate(aggregate);
+            }
         }
         for (String f : this.facts) {
             cube.addFact(f);
         }
         addMeasures(cube);
-        return cube;
+        this.cube = cube;
+        return cube.newView();
     }
 
     /**
@@ -159,9 +538,41 @@ public class CubeBuilder {
      * @param cube Cubo al que se le añaden las medidas
      */
     private void addMeasures(Cube cube) {
-        cube.addMeasure(new Count());
-        cube.addMeasure(new Sum());
-        cube.addMeasure(new Min());
-        cube.addMeasure(new Max());
+        for (Measure measure : measures()) {
+            cube.addMeasure(measure);
+        }
+    }
+
+    /**
+     * Crea las medidas que se agregan a cada cubo.
+     */
+    private static List<Measure> measures() {
+        List<Measure> measures = new ArrayList<>();
+        measures.add(new Count());
+        measures.add(new Sum());
+        measures.add(new Min());
+        measures.add(new Max());
+        measures.add(new Average());
+        measures.add(new DistinctCount());
+        measures.add(new ApproxDistinctCount());
+        measures.add(new Quantile("mediana", 0.5));
+        measures.add(new Quantile("p95", 0.95));
+        return measures;
+    }
+
+    /**
+     * Medidas que se materializan en los agregados: las que se derivan de cantidad, suma, mínimo
+     * y máximo (ver Measure.fromSummary()), y con setAggregateSketches() también las demás de
+     * estado acotado (ver Measure.hasBoundedState()). Las otras se calculan recorriendo las filas.
+     */
+    private List<Measure> aggregateMeasures() {
+        double[] summary = new double[4];
+        List<Measure> measures = new ArrayList<>();
+        for (Measure measure : measures()) {
+            if (measure.fromSummary(summary) != null || (aggregateSketches && measure.hasBoundedState())) {
+                measures.add(measure);
+            }
+        }
+        return measures;
     }
 }
\ No newline at end of file
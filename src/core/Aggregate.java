@@ -0,0 +1,403 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import metrics.Measure;
+
+/**
+ * Agregado materializado del cubo.
+ *
+ * Para una combinación de niveles de algunas dimensiones (por ejemplo anio x provincia) guarda,
+ * por cada grupo de miembros, el estado de cada medida sobre cada hecho, calculado una sola vez
+ * sobre todas las filas de la tabla. Como los estados de las medidas se pueden combinar, una
+ * consulta cuyos niveles se deducen de los del agregado (el mismo nivel o uno superior, si cada
+ * miembro del agregado pertenece a un único miembro del nivel consultado) se responde combinando
+ * grupos, sin recorrer las filas de la tabla.
+ *
+ * append() devuelve una versión nueva del agregado con filas agregadas a la tabla, recorriendo
+ * sólo esas filas.
+ *
+ * Nota: las sumas se combinan en otro orden que al recorrer la tabla, por lo que pueden
+ * diferir en los últimos dígitos decimales.
+ */
+public class Aggregate {
+    private List<String> dimensions;        // Dimensión de cada eje
+    private List<String> levels;            // Nivel agrupado de cada eje
+    private List<String> facts;             // Hechos agregados
+    private List<Measure> measures;         // Medidas agregadas
+    private List<String> keys;              // Foreign key de cada eje
+    private IntMap[] codesById;             // Por eje, id de la PK -> código del miembro del nivel
+    private int[][] idsPerCode;             // Por eje, ids de cada código; el último es el de ids desconocidos
+    private long[] strides;                 // Por eje, salto de la clave de grupo
+    private Map<Long, Integer> slots;       // Clave de grupo -> número de grupo
+    private int[][] groupCodes;             // Por eje, código de cada grupo
+    private int groups;                     // Cantidad de grupos
+    private double[][][] states;            // Por hecho y medida, estado de cada grupo
+
+    /**
+     * Calcula el agregado recorriendo una vez todas las filas de la tabla.
+     *
+     * @param table      Tabla de hechos
+     * @param cubeDims   Todas las dimensiones del cubo
+     * @param levels     Mapa de nombre de dimensión a nivel a agrupar
+     * @param facts      Hechos a agregar
+     * @param measures   Medidas a agregar
+     */
+    public Aggregate(
+        FactTable table,
+        List<Dimension> cubeDims,
+        Map<String, String> levels,
+        List<String> facts,
+        List<Measure> measures
+    ) {
+        this.dimensions = new ArrayList<>();
+        this.levels = new ArrayList<>();
+        this.facts = facts;
+        this.measures = measures;
+
+        Map<String, Dimension> byName = new HashMap<>();
+        for (Dimension dimension : cubeDims) {
+            byName.put(dimension.getName(), dimension);
+        }
+        for (Map.Entry<String, String> entry : levels.entrySet()) {
+            Dimension dimension = byName.get(entry.getKey());
+            if (dimension == null) {
+                throw new IllegalArgumentException("Dimension not found: " + entry.getKey());
+            }
+            if (dimension.getLevel(entry.getValue()) == null) {
+                throw new IllegalArgumentException("Level not found: " + entry.getValue());
+            }
+            this.dimensions.add(entry.getKey());
+            this.levels.add(entry.getValue());
+        }
+
+        if (this.dimensions.isEmpty()) {
+            throw new IllegalArgumentException("An aggregate needs at least one level");
+        }
+
+        int axes = this.dimensions.size();
+        this.keys = new ArrayList<>();
+        this.codesById = new IntMap[axes];
+        this.idsPerCode = new int[axes][];
+        this.strides = new long[axes];
+        long stride = 1;
+        for (int axis = 0; axis < axes; axis++) {
+            Dimension dimension = byName.get(this.dimensions.get(axis));
+            Level level = dimension.getLevel(this.levels.get(axis));
+            Level idLevel = dimension.getIdLevel();
+            int unknown = level.getMembers().size();
+            keys.add(dimension.getIdKey());
+            codesById[axis] = new IntMap(idLevel.size());
+            idsPerCode[axis] = new int[unknown + 1];
+            for (int row = 0; row < idLevel.size(); row++) {
+                codesById[axis].put((Integer) idLevel.get(row), level.getCodes()[row]);
+                idsPerCode[axis][level.getCodes()[row]]++;
+            }
+            strides[axis] = stride;
+            stride *= unknown + 1;
+        }
+
+        this.slots = new HashMap<>();
+        this.groups = 0;
+        this.groupCodes = new int[axes][16];
+        this.states = new double[facts.size() * measures.size()][16][];
+        accumulate(table, 0);
+    }
+
+    /**
+     * Copia un agregado para extenderlo. Los estados se copian, así el original no cambia.
+     */
+    private Aggregate(Aggregate other) {
+        this.dimensions = other.dimensions;
+        this.levels = other.levels;
+        this.facts = other.facts;
+        this.measures = other.measures;
+        this.keys = other.keys;
+        this.codesById = other.codesById;
+        this.idsPerCode = other.idsPerCode;
+        this.strides = other.strides;
+        this.slots = new HashMap<>(other.slots);
+        this.groups = other.groups;
+        this.groupCodes = new int[other.groupCodes.length][];
+        for (int axis = 0; axis < groupCodes.length; axis++) {
+            groupCodes[axis] = other.groupCodes[axis].clone();
+        }
+        this.states = new double[other.states.length][][];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new double[other.states[i].length][];
+            for (int group = 0; group < groups; group++) {
+                states[i][group] = other.states[i][group].clone();
+            }
+        }
+    }
+
+    /**
+     * Devuelve una versión nueva del agregado que además incluye las filas de la tabla desde from.
+     * Este agregado no cambia.
+     */
+    public Aggregate append(FactTable table, int from) {
+        Aggregate result = new Aggregate(this);
+        result.accumulate(table, from);
+        return result;
+    }
+
+    /**
+     * Recalcula el agregado, con los mismos niveles, hechos y medidas, sobre otras dimensiones
+     * (por ejemplo, después de agregar miembros a una de ellas).
+     */
+    Aggregate rebuild(FactTable table, List<Dimension> cubeDims) {
+        Map<String, String> levelsByDimension = new LinkedHashMap<>();
+        for (int axis = 0; axis < dimensions.size(); axis++) {
+            levelsByDimension.put(dimensions.get(axis), levels.get(axis));
+        }
+        return new Aggregate(table, cubeDims, levelsByDimension, facts, measures);
+    }
+
+    /**
+     * Acumula las filas [from, size) de la tabla en los grupos, creando los que falten.
+     */
+    private void accumulate(FactTable table, int from) {
+        int axes = dimensions.size();
+        int[][] keyColumns = new int[axes][];
+        for (int axis = 0; axis < axes; axis++) {
+            keyColumns[axis] = table.getKeyColumn(keys.get(axis));
+        }
+        double[][] values = new double[facts.size()][];
+        for (int f = 0; f < facts.size(); f++) {
+            values[f] = table.getFactColumn(facts.get(f));
+        }
+        int[] codes = new int[axes];
+        for (int row = from; row < table.size(); row++) {
+            long key = 0;
+            for (int axis = 0; axis < axes; axis++) {
+                int code = codesById[axis].get(keyColumns[axis][row]);
+                codes[axis] = code == -1 ? idsPerCode[axis].length - 1 : code;
+                key += codes[axis] * strides[axis];
+            }
+            Integer slot = slots.get(key);
+            if (slot == null) {
+                slot = addGroup(codes);
+                slots.put(key, slot);
+            }
+            for (int f = 0; f < facts.size(); f++) {
+                for (int m = 0; m < measures.size(); m++) {
+                    double[][] groupStates = states[f * measures.size() + m];
+                    groupStates[slot] = measures.get(m).accumulate(groupStates[slot], values[f][row]);
+                }
+            }
+        }
+    }
+
+    private int addGroup(int[] codes) {
+        if (groups == groupCodes[0].length) {
+            for (int axis = 0; axis < groupCodes.length; axis++) {
+                groupCodes[axis] = Arrays.copyOf(groupCodes[axis], groups * 2);
+            }
+            for (int i = 0; i < states.length; i++) {
+                states[i] = Arrays.copyOf(states[i], groups * 2);
+            }
+        }
+        for (int axis = 0; axis < codes.length; axis++) {
+            groupCodes[axis][groups] = codes[axis];
+        }
+        for (int f = 0; f < facts.size(); f++) {
+            for (int m = 0; m < measures.size(); m++) {
+                states[f * measures.size() + m][groups] = measures.get(m).init();
+            }
+        }
+        return groups++;
+    }
+
+    public List<String> getDimensions() {
+        return this.dimensions;
+    }
+
+    public List<String> getLevels() {
+        return this.levels;
+    }
+
+    /**
+     * Cantidad de grupos (combinaciones de miembros con datos) del agregado.
+     */
+    public int getGroups() {
+        return this.groups;
+    }
+
+    /**
+     * Memoria aproximada, en bytes, que ocupan los estados, los grupos y los mapas de ids.
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (double[][] groupStates : states) {
+            bytes += 16 + 8L * groupStates.length;
+            for (int group = 0; group < groups; group++) {
+                bytes += 16 + 8L * groupStates[group].length;
+            }
+        }
+        for (int axis = 0; axis < dimensions.size(); axis++) {
+            bytes += 16 + 4L * groupCodes[axis].length;
+            bytes += 16 + 4L * idsPerCode[axis].length;
+            bytes += 32 + 8L * codesById[axis].size() * 2;  // Claves y valores, con carga de 1/2
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        List<String> axes = new ArrayList<>();
+        for (int axis = 0; axis < dimensions.size(); axis++) {
+            axes.add(levels.get(axis) + " (" + dimensions.get(axis) + ")");
+        }
+        return "Aggregate [" + String.join(" x ", axes) + ": " + groups + " groups, "
+                + getMemoryBytes() + " bytes]";
+    }
+
+    /**
+     * Responde un agrupamiento combinando los grupos del agregado.
+     * Devuelve null si el agregado no cubre la consulta: una dimensión agrupada o filtrada que no
+     * es eje del agregado, un nivel que no se deduce del nivel del agregado, un filtro que separa
+     * ids de un mismo miembro del agregado, o un hecho o medida que no se agregó.
+     *
+     * @param baseDims        Dimensiones de los datos del cubo, sin filtrar
+     * @param cubeDims        Dimensiones del cubo consultado (posiblemente filtradas por dice)
+     * @param groupDimensions Dimensiones a agrupar, en su nivel activo
+     */
+    Grid answer(
+        Map<String, Dimension> baseDims,
+        Map<String, Dimension> cubeDims,
+        List<Dimension> groupDimensions,
+        String fact,
+        Measure measure
+    ) {
+        int f = facts.indexOf(fact);
+        int m = -1;
+        for (int i = 0; i < measures.size(); i++) {
+            if (measures.get(i).getClass() == measure.getClass()
+                    && measures.get(i).getName().equals(measure.getName())) {
+                m = i;
+            }
+        }
+        if (f == -1 || m == -1) {
+            return null;
+        }
+        for (Dimension dimension : groupDimensions) {
+            if (!dimensions.contains(dimension.getName())) {
+                return null;
+            }
+        }
+        for (Dimension dimension : cubeDims.values()) {
+            if (!dimensions.contains(dimension.getName())
+                    && isFiltered(baseDims, dimension)) {
+                return null;    // Dimensión filtrada que el agregado no distingue
+            }
+        }
+
+        Grid grid = Grid.of(groupDimensions, fact, measure);
+        int axes = dimensions.size();
+        long[][] cellsByCode = new long[axes][];
+        for (int axis = 0; axis < axes; axis++) {
+            String name = dimensions.get(axis);
+            int groupAxis = -1;
+            for (int g = 0; g < groupDimensions.size(); g++) {
+                if (groupDimensions.get(g).getName().equals(name)) {
+                    groupAxis = g;
+                }
+            }
+            Dimension dimension = cubeDims.get(name);
+            cellsByCode[axis] = cellsByCode(
+                axis, dimension, isFiltered(baseDims, dimension), grid, groupAxis
+            );
+            if (cellsByCode[axis] == null) {
+                return null;
+            }
+        }
+
+        double[][] groupStates = states[f * measures.size() + m];
+        for (int group = 0; group < groups; group++) {
+            long cell = 0;
+            int axis = 0;
+            for (; axis < axes; axis++) {
+                long offset = cellsByCode[axis][groupCodes[axis][group]];
+                if (offset == -1) {
+                    break;  // El grupo quedó fuera del cubo consultado
+                }
+                cell += offset;
+            }
+            if (axis == axes) {
+                grid.merge(cell, groupStates[group]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Indica si la dimensión consultada quedó reducida por un dice respecto de la de los datos.
+     */
+    private static boolean isFiltered(Map<String, Dimension> baseDims, Dimension dimension) {
+        return dimension.getIdLevel().size() != baseDims.get(dimension.getName()).getIdLevel().size();
+    }
+
+    /**
+     * Traduce cada código del eje al desplazamiento de su celda en la grilla (0 si la dimensión
+     * no se agrupa), o -1 si sus filas no pertenecen al cubo consultado.
+     * Devuelve null si el eje no puede responder a la dimensión consultada.
+     */
+    private long[] cellsByCode(
+        int axis,
+        Dimension dimension,
+        boolean filtered,
+        Grid grid,
+        int groupAxis
+    ) {
+        int[] counts = new int[idsPerCode[axis].length];
+        Level idLevel = dimension.getIdLevel();
+        int[] codeByRow = new int[idLevel.size()];
+        for (int row = 0; row < idLevel.size(); row++) {
+            codeByRow[row] = codesById[axis].get((Integer) idLevel.get(row));
+            if (codeByRow[row] == -1) {
+                return null;
+            }
+            counts[codeByRow[row]]++;
+        }
+
+        int unknown = counts.length - 1;
+        long[] cells = new long[counts.length];
+        for (int code = 0; code < unknown; code++) {
+            if (counts[code] != 0 && counts[code] != idsPerCode[axis][code]) {
+                return null;    // El filtro separa ids de un mismo miembro del agregado
+            }
+            cells[code] = counts[code] == 0 ? -1 : 0;
+        }
+        cells[unknown] = groupAxis != -1 || filtered ? -1 : 0;
+
+        if (groupAxis != -1) {
+            List<Object> members = grid.getMembers(groupAxis);
+            Map<Object, Integer> positionByMember = new HashMap<>();
+            for (int p = 0; p < members.size(); p++) {
+                positionByMember.put(members.get(p), p);
+            }
+            Level level = dimension.getActiveLevel();
+            long[] positions = new long[unknown];
+            Arrays.fill(positions, -1);
+            for (int row = 0; row < idLevel.size(); row++) {
+                int code = codeByRow[row];
+                long position = positionByMember.get(level.get(row));
+                if (positions[code] != -1 && positions[code] != position) {
+                    return null;    // El nivel consultado no se deduce del nivel del agregado
+                }
+                positions[code] = position;
+            }
+            for (int code = 0; code < unknown; code++) {
+                if (cells[code] != -1) {
+                    cells[code] = positions[code] * grid.stride(groupAxis);
+                }
+            }
+        }
+        return cells;
+    }
+}
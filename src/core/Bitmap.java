@@ -0,0 +1,349 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto inmutable de filas de la tabla de hechos.
+ *
+ * Se guarda como bitset (un bit por fila) cuando es denso, o como arreglo ordenado
+ * de filas cuando es disperso, lo que ocupe menos memoria.
+ */
+public final class Bitmap {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final long[] words;     // Representación densa; null si es dispersa
+    private final int[] rows;       // Representación dispersa; null si es densa
+    private final int cardinality;  // Cantidad de filas en el conjunto
+
+    private Bitmap(long[] words, int[] rows, int cardinality) {
+        this.words = words;
+        this.rows = rows;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Bitmap vacío.
+     */
+    public static Bitmap empty() {
+        return new Bitmap(null, NO_ROWS, 0);
+    }
+
+    /**
+     * Bitmap con todas las filas de 0 a size - 1.
+     */
+    public static Bitmap full(int size) {
+        long[] words = new long[wordCount(size)];
+        Arrays.fill(words, -1L);
+        if (size % 64 != 0) {
+            words[words.length - 1] = (1L << (size % 64)) - 1;
+        }
+        return new Bitmap(words, null, size);
+    }
+
+    /**
+     * Bitmap con las filas de from (inclusive) a to (exclusive).
+     */
+    public static Bitmap range(int from, int to) {
+        if (from >= to) {
+            return empty();
+        }
+        if (from == 0) {
+            return full(to);
+        }
+        long[] words = new long[wordCount(to)];
+        for (int w = from >>> 6; w < words.length; w++) {
+            words[w] = rangeMask(w, from, to);
+        }
+        return fromWords(words);
+    }
+
+    /**
+     * Crea un bitmap a partir de las primeras count filas de un arreglo ordenado.
+     * Elige la representación más compacta.
+     */
+    public static Bitmap fromSortedRows(int[] rows, int count) {
+        if (count == 0) {
+            return empty();
+        }
+        int size = rows[count - 1] + 1;
+        if (isSparse(count, size)) {
+            return new Bitmap(null, Arrays.copyOf(rows, count), count);
+        }
+        long[] words = new long[wordCount(size)];
+        for (int i = 0; i < count; i++) {
+            words[rows[i] >>> 6] |= 1L << rows[i];
+        }
+        return new Bitmap(words, null, count);
+    }
+
+    /**
+     * Crea un bitmap a partir de un bitset, eligiendo la representación más compacta.
+     */
+    public static Bitmap fromWords(long[] words) {
+        int count = 0;
+        int last = -1;
+        for (int w = 0; w < words.length; w++) {
+            if (words[w] != 0) {
+                count += Long.bitCount(words[w]);
+                last = w;
+            }
+        }
+        if (count == 0) {
+            return empty();
+        }
+        int size = (last << 6) + 64 - Long.numberOfLeadingZeros(words[last]);
+        if (isSparse(count, size)) {
+            int[] rows = new int[count];
+            int i = 0;
+            for (int w = 0; w <= last; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    rows[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return new Bitmap(null, rows, count);
+        }
+        return new Bitmap(Arrays.copyOf(words, last + 1), null, count);
+    }
+
+    public int cardinality() {
+        return this.cardinality;
+    }
+
+    /**
+     * Cantidad de filas del conjunto entre from (inclusive) y to (exclusive).
+     */
+    public int cardinality(int from, int to) {
+        if (rows != null) {
+            return lowerBound(rows, to) - lowerBound(rows, from);
+        }
+        int lastWord = Math.min(words.length, wordCount(to));
+        int count = 0;
+        for (int w = from >>> 6; w < lastWord; w++) {
+            count += Long.bitCount(words[w] & rangeMask(w, from, to));
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int row) {
+        if (words != null) {
+            int w = row >>> 6;
+            return w < words.length && (words[w] & (1L << row)) != 0;
+        }
+        return Arrays.binarySearch(rows, row) >= 0;
+    }
+
+    /**
+     * Devuelve las filas del conjunto en orden ascendente.
+     */
+    public int[] toArray() {
+        if (rows != null) {
+            return rows.clone();
+        }
+        int[] result = new int[cardinality];
+        int i = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                result[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Devuelve las filas del conjunto que están entre from (inclusive) y to (exclusive),
+     * en orden ascendente.
+     */
+    public int[] toArray(int from, int to) {
+        if (rows != null) {
+            int start = lowerBound(rows, from);
+            int end = lowerBound(rows, to);
+            return Arrays.copyOfRange(rows, start, end);
+        }
+        int lastWord = Math.min(words.length, wordCount(to));
+        int count = 0;
+        for (int w = from >>> 6; w < lastWord; w++) {
+            count += Long.bitCount(words[w] & rangeMask(w, from, to));
+        }
+        int[] result = new int[count];
+        int i = 0;
+        for (int w = from >>> 6; w < lastWord; w++) {
+            long word = words[w] & rangeMask(w, from, to);
+            while (word != 0) {
+                result[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Intersección (AND) entre dos bitmaps.
+     */
+    public Bitmap and(Bitmap other) {
+        if (this.isEmpty() || other.isEmpty()) {
+            return empty();
+        }
+        if (this.rows != null || other.rows != null) {
+            Bitmap sparse = this.rows != null ? this : other;
+            Bitmap probe = sparse == this ? other : this;
+            int[] result = new int[sparse.cardinality];
+            int count = 0;
+            for (int row : sparse.rows) {
+                if (probe.contains(row)) {
+                    result[count++] = row;
+                }
+            }
+            return fromSortedRows(result, count);
+        }
+        int length = Math.min(this.words.length, other.words.length);
+        long[] result = new long[length];
+        for (int w = 0; w < length; w++) {
+            result[w] = this.words[w] & other.words[w];
+        }
+        return fromWords(result);
+    }
+
+    /**
+     * Unión (OR) entre dos bitmaps.
+     */
+    public Bitmap or(Bitmap other) {
+        if (this.isEmpty()) {
+            return other;
+        }
+        if (other.isEmpty()) {
+            return this;
+        }
+        long[] result = new long[Math.max(this.wordLength(), other.wordLength())];
+        this.orInto(result);
+        other.orInto(result);
+        return fromWords(result);
+    }
+
+    /**
+     * Unión con un bitmap cuyas filas son todas mayores que las de este (por ejemplo, las filas
+     * agregadas al final de la tabla). Si ambos son dispersos, concatena los arreglos sin
+     * recorrer un bitset; si no, equivale a or().
+     */
+    public Bitmap append(Bitmap tail) {
+        if (this.isEmpty()) {
+            return tail;
+        }
+        if (tail.isEmpty()) {
+            return this;
+        }
+        if (this.rows != null && tail.rows != null && tail.rows[0] > this.rows[cardinality - 1]) {
+            int count = this.cardinality + tail.cardinality;
+            if (isSparse(count, tail.rows[tail.cardinality - 1] + 1)) {
+                int[] result = Arrays.copyOf(this.rows, count);
+                System.arraycopy(tail.rows, 0, result, this.cardinality, tail.cardinality);
+                return new Bitmap(null, result, count);
+            }
+        }
+        return or(tail);
+    }
+
+    /**
+     * Unión de muchos bitmaps a la vez, acumulando sobre un único bitset.
+     */
+    public static Bitmap or(Bitmap[] bitmaps) {
+        int length = 0;
+        for (Bitmap bitmap : bitmaps) {
+            length = Math.max(length, bitmap.wordLength());
+        }
+        long[] result = new long[length];
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.orInto(result);
+        }
+        return fromWords(result);
+    }
+
+    /**
+     * Palabras del bitset, o null si el bitmap es disperso. Se usa para persistir el bitmap.
+     */
+    long[] words() {
+        return this.words;
+    }
+
+    /**
+     * Filas del arreglo ordenado, o null si el bitmap es denso. Se usa para persistir el bitmap.
+     */
+    int[] rows() {
+        return this.rows;
+    }
+
+    /**
+     * Reconstruye un bitmap persistido a partir de su representación densa o dispersa.
+     */
+    static Bitmap of(long[] words, int[] rows, int cardinality) {
+        return new Bitmap(words, rows, cardinality);
+    }
+
+    @Override
+    public String toString() {
+        return "Bitmap [" + cardinality + " rows, " + (words != null ? "dense" : "sparse") + "]";
+    }
+
+    /**
+     * Cantidad de palabras de 64 bits necesarias para representar el conjunto.
+     */
+    private int wordLength() {
+        if (words != null) {
+            return words.length;
+        }
+        return cardinality == 0 ? 0 : wordCount(rows[cardinality - 1] + 1);
+    }
+
+    private void orInto(long[] target) {
+        if (words != null) {
+            for (int w = 0; w < words.length; w++) {
+                target[w] |= words[w];
+            }
+        } else {
+            for (int row : rows) {
+                target[row >>> 6] |= 1L << row;
+            }
+        }
+    }
+
+    /**
+     * Máscara de los bits de la palabra w que caen entre from (inclusive) y to (exclusive).
+     */
+    private static long rangeMask(int w, int from, int to) {
+        long mask = -1L;
+        int first = w << 6;
+        if (from > first) {
+            mask &= -1L << (from - first);
+        }
+        if (to < first + 64) {
+            mask &= (1L << (to - first)) - 1;
+        }
+        return mask;
+    }
+
+    /**
+     * Primera posición del arreglo ordenado cuyo valor es mayor o igual a value.
+     */
+    private static int lowerBound(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * Un int por fila ocupa menos que un bit por fila cuando hay menos de una fila cada 32.
+     */
+    private static boolean isSparse(int count, int size) {
+        return (long) count * 32 < size;
+    }
+}
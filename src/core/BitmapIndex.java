@@ -0,0 +1,137 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice de bitmaps sobre las foreign keys de la tabla de hechos.
+ * Para cada foreign key guarda, por cada id, el bitmap de las filas que lo referencian.
+ */
+public class BitmapIndex {
+    private Map<String, Map<Integer, Bitmap>> bitmaps;  // foreign key -> id -> filas
+
+    public BitmapIndex(FactTable table) {
+        this.bitmaps = new HashMap<>();
+        for (String key : table.getForeignKeys()) {
+            bitmaps.put(key, indexColumn(table.getKeyColumn(key), 0, table.size()));
+        }
+    }
+
+    /**
+     * Constructor usado al cargar un cubo persistido (ver CubeSnapshot).
+     */
+    BitmapIndex(Map<String, Map<Integer, Bitmap>> bitmaps) {
+        this.bitmaps = bitmaps;
+    }
+
+    /**
+     * Devuelve un índice nuevo que además cubre las filas de la tabla desde from.
+     * Sólo se recorren las filas nuevas; los bitmaps de los ids que no aparecen en ellas
+     * se comparten con este índice, que no cambia.
+     */
+    public BitmapIndex append(FactTable table, int from) {
+        Map<String, Map<Integer, Bitmap>> newBitmaps = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Bitmap>> entry : bitmaps.entrySet()) {
+            Map<Integer, Bitmap> index = new HashMap<>(entry.getValue());
+            int[] column = table.getKeyColumn(entry.getKey());
+            for (Map.Entry<Integer, Bitmap> added : indexColumn(column, from, table.size()).entrySet()) {
+                Bitmap current = index.get(added.getKey());
+                index.put(
+                    added.getKey(),
+                    current == null ? added.getValue() : current.append(added.getValue())
+                );
+            }
+            newBitmaps.put(entry.getKey(), index);
+        }
+        return new BitmapIndex(newBitmaps);
+    }
+
+    /**
+     * Devuelve las filas cuyo valor de la foreign key es id.
+     */
+    public Bitmap get(String key, int id) {
+        Bitmap bitmap = keyIndex(key).get(id);
+        return bitmap == null ? Bitmap.empty() : bitmap;
+    }
+
+    /**
+     * Devuelve las filas cuyo valor de la foreign key es alguno de los ids (OR).
+     */
+    public Bitmap any(String key, int[] ids) {
+        Map<Integer, Bitmap> index = keyIndex(key);
+        Bitmap[] found = new Bitmap[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            Bitmap bitmap = index.get(id);
+            if (bitmap != null) {
+                found[count++] = bitmap;
+            }
+        }
+        if (count == 0) {
+            return Bitmap.empty();
+        }
+        if (count == 1) {
+            return found[0];
+        }
+        return Bitmap.or(Arrays.copyOf(found, count));
+    }
+
+    /**
+     * Devuelve los ids presentes en la foreign key.
+     */
+    public List<Integer> getIds(String key) {
+        return new ArrayList<>(keyIndex(key).keySet());
+    }
+
+    Map<String, Map<Integer, Bitmap>> bitmaps() {
+        return this.bitmaps;
+    }
+
+    private Map<Integer, Bitmap> keyIndex(String key) {
+        Map<Integer, Bitmap> index = bitmaps.get(key);
+        if (index == null) {
+            throw new IllegalArgumentException("Foreign key not found");
+        }
+        return index;
+    }
+
+    /**
+     * Agrupa las filas [from, size) de una columna por id en dos pasadas (contar y llenar),
+     * de modo que las filas de cada id quedan ordenadas.
+     */
+    private static Map<Integer, Bitmap> indexColumn(int[] column, int from, int size) {
+        Map<Integer, Integer> slots = new HashMap<>();
+        int[] counts = new int[16];
+        for (int row = from; row < size; row++) {
+            Integer slot = slots.get(column[row]);
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(column[row], slot);
+                if (slot == counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+            }
+            counts[slot]++;
+        }
+
+        int[][] rows = new int[slots.size()][];
+        for (int s = 0; s < rows.length; s++) {
+            rows[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int row = from; row < size; row++) {
+            int slot = slots.get(column[row]);
+            rows[slot][counts[slot]++] = row;
+        }
+
+        Map<Integer, Bitmap> index = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : slots.entrySet()) {
+            int[] idRows = rows[entry.getValue()];
+            index.put(entry.getKey(), Bitmap.fromSortedRows(idRows, idRows.length));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,108 @@
+package core;
+
+/**
+ * Montículo acotado de pares (valor, posición) sin boxing, para quedarse con los N mejores de
+ * una secuencia sin ordenarla completa. La raíz es el peor de los que se conservan, así que
+ * cada valor nuevo se compara una vez con ella y sólo entra si la supera (O(log N)).
+ *
+ * Con descending, los mejores son los valores más altos (top-N); si no, los más bajos.
+ * Los empates se resuelven por la posición más chica, así el resultado no depende del orden
+ * en que llegan los valores.
+ */
+final class BoundedHeap {
+    private double[] values;
+    private int[] positions;
+    private int size;
+    private boolean descending;
+
+    BoundedHeap(int capacity, boolean descending) {
+        this.values = new double[capacity];
+        this.positions = new int[capacity];
+        this.size = 0;
+        this.descending = descending;
+    }
+
+    /**
+     * Ofrece un valor; queda en el montículo si está entre los N mejores vistos hasta ahora.
+     */
+    void offer(double value, int position) {
+        if (size < values.length) {
+            values[size] = value;
+            positions[size] = position;
+            siftUp(size++);
+        } else if (better(value, position, values[0], positions[0])) {
+            values[0] = value;
+            positions[0] = position;
+            siftDown(0, size);
+        }
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Vacía el montículo y devuelve las posiciones del mejor al peor; los valores quedan en
+     * sortedValues, en el mismo orden.
+     */
+    int[] drain(double[] sortedValues) {
+        int count = size;
+        for (int last = size - 1; last > 0; last--) {
+            swap(0, last);              // El peor que queda pasa al final
+            siftDown(0, last);
+        }
+        size = 0;
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = positions[i];
+            sortedValues[i] = values[i];
+        }
+        return sorted;
+    }
+
+    private boolean better(double value, int position, double otherValue, int otherPosition) {
+        if (value != otherValue) {
+            return descending ? value > otherValue : value < otherValue;
+        }
+        return position < otherPosition;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(values[parent], positions[parent], values[i], positions[i])) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < end && better(values[worst], positions[worst], values[left], positions[left])) {
+                worst = left;
+            }
+            if (right < end && better(values[worst], positions[worst], values[right], positions[right])) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        int position = positions[i];
+        positions[i] = positions[j];
+        positions[j] = position;
+    }
+}
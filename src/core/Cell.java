@@ -1,80 +1,69 @@
 package core;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+
+import metrics.Measure;
 
 /**
- * Celdas individuales de un cubo OLAP.
- * Cada celda es responsable de sus foreing keys y sus hechos.
+ * Celda de un cubo OLAP.
+ * Una celda es un grupo de filas de la tabla de hechos; no copia los valores,
+ * sólo guarda los índices de las filas que la componen.
  */
 public class Cell {
-    private Map<String, Integer> keys;
-    private Map<String, List<Double>> facts;
+    private FactTable table;
+    private int[] rows;
 
 
-    public Cell(Map<String, Integer> keys, Map<String, List<Double>> facts) {
-        this.keys = keys;
-        this.facts = facts;
+    public Cell(FactTable table, int[] rows) {
+        this.table = table;
+        this.rows = rows;
     }
 
-    public Cell() {
-        keys = new HashMap<>();
-        facts = new HashMap<>();
+    public int size() {
+        return rows.length;
     }
 
-    public Cell(String idKey, Integer keyValue) {
-        keys = new HashMap<>();
-        keys.put(idKey, keyValue);
-        facts = new HashMap<>();
+    public int[] getRows() {
+        return this.rows;
     }
 
-    public void addKey(String key, Integer value) {
-        keys.put(key, value);
+    /**
+     * Calcula la medida sobre el hecho indicado, leyendo directamente de la columna.
+     */
+    public double calc(String fact, Measure measure) {
+        return measure.calc(table.getFactColumn(fact), rows);
     }
 
-    public void addFact(String key, Double value) {
-        if (!facts.containsKey(key)) {
-            List<Double> valuesList = new ArrayList<>();
-            valuesList.add(value);
-            facts.put(key, valuesList);
-        } else {
-            facts.get(key).add(value);
+    /**
+     * Calcula varias medidas sobre el hecho indicado. Si todas se derivan de la cantidad, suma,
+     * mínimo y máximo, la columna se recorre una sola vez (ver Measure.accumulateAll()).
+     *
+     * @return Resultado de cada medida, en el mismo orden
+     */
+    public double[] calc(String fact, List<Measure> measures) {
+        double[][] states = new double[measures.size()][];
+        for (int m = 0; m < states.length; m++) {
+            states[m] = measures.get(m).init();
         }
-    }
-
-    public List<Double> getFacts(String key) {
-        return facts.get(key);
+        Measure.accumulateAll(measures, states, table.getFactColumn(fact), rows, 0, rows.length);
+        double[] results = new double[states.length];
+        for (int m = 0; m < states.length; m++) {
+            results[m] = measures.get(m).result(states[m]);
+        }
+        return results;
     }
 
     @Override
     public String toString() {
-        return "Cell [keys =" + keys + ", facts =" + facts + "]";
+        return "Cell [rows =" + Arrays.toString(rows) + ", facts =" + table.getFacts() + "]";
     }
 
     /**
-     * Es verdadero si la foreig key es la buscada.
-     * Se comunica con el Cubo para buscar las celdas que se necesitan.
+     * Agrupa muchas filas de la tabla de hechos en una sola celda para poder hacer cálculos.
      */
-    public boolean isResult(String key, Integer value) {
-        return keys.get(key).equals(value);
-    }
-
-    /**
-     * Agrupa muchas celdas en una sola para poder hacer cálculos.
-     *
-     */
-    public static Cell cellFromGroup(List<Cell> cells) {
-        Cell result = new Cell();
-        for (Cell cell : cells) {
-            for (String factName : cell.facts.keySet()) {
-                for (Double value : cell.facts.get(factName)) {
-                    result.addFact(factName, value);
-                }
-            }
-        }
-        return result;
+    public static Cell cellFromGroup(FactTable table, int[] rows) {
+        return new Cell(table, rows);
     }
 
-}
\ No newline at end of file
+}
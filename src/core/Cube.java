@@ -1,83 +1,343 @@
 package core;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import metrics.Measure;
 
 /**
  * La clase Cube representa un cubo OLAP.
+ *
+ * Cada Cube es una vista liviana sobre datos inmutables y compartidos (CubeData): guarda sólo
+ * el estado de navegación (filtros de dice/slice, nivel activo de cada dimensión, hecho, medida).
+ * drillDown() y rollUp() cambian el nivel sólo en esta vista, y slice()/dice() devuelven vistas
+ * nuevas. Una vista no es thread-safe, pero varios hilos pueden consultar los mismos datos
+ * sin bloqueos ni copias, cada uno con su propia vista (ver newView()).
  */
 public class Cube {
-    private Map<String, Dimension> dimensions;  // Mapa de dimensiones
-    private List<Measure> measures;             // Lista de medidas del cubo
-    private List<String> facts;                 // Lista de los nombres de los hechos del cubo
-    private List<Cell> cells;                   // Lista de celdas del cubo
+    private static final long DEFAULT_CACHE_BYTES = 64L << 20;  // Memoria de la caché por defecto
+
+    private CubeData data;                      // Datos compartidos por todas las vistas
+    private Map<String, Dimension> dimensions;  // Dimensiones de la vista, filtradas y en su nivel activo
+    private Bitmap selection;                   // Filas de la tabla que pertenecen a la vista
+    private List<String> filters;               // Filtros de dice/slice aplicados, en forma canónica
     private int selectedFact;                   // Hecho seleccionado actualmente
     private int selectedMeasure;                // Medida seleccionada actualmente
+    private int parallelism;                    // Hilos usados para agregar; 1 es secuencial
+    private boolean residualFilter;             // Hay filtros que las dimensiones no reflejan (OR entre dimensiones)
 
     public Cube() {
-        this.dimensions = new HashMap<>();
-        this.measures = new ArrayList<>();
-        this.facts = new ArrayList<>();
-        this.cells = new ArrayList<>();
-        this.selectedFact = 0;                  // Selecciona el primer hecho por defecto
-        this.selectedMeasure = 0;               // Selecciona la primera medida por defecto
+        this(new CubeData(
+            new HashMap<>(), new ArrayList<>(), new ArrayList<>(),
+            null, null, Bitmap.empty(), new ArrayList<>(),
+            new QueryCache(DEFAULT_CACHE_BYTES), new QueryMonitor()
+        ));
+    }
+
+    /**
+     * Crea una vista con la navegación inicial sobre los datos indicados.
+     * Agrega en forma secuencial por defecto.
+     */
+    Cube(CubeData data) {
+        this(data, CubeData.copy(data.dimensions()), data.rows(), new ArrayList<>(), 1);
     }
 
     /**
      * Constructor usado para devolver en caso de slice, dice, etc.
      */
     private Cube(
+        CubeData data,
         Map<String, Dimension> dimensions,
-        List<Measure> metrics,
-        List<String> facts,
-        List<Cell> cells
+        Bitmap selection,
+        List<String> filters,
+        int parallelism
     ) {
+        this.data = data;
         this.dimensions = dimensions;
-        this.measures = metrics;
-        this.facts = facts;
-        this.cells = cells;
-        this.selectedFact = 0;
-        this.selectedMeasure = 0;
+        this.selection = selection;
+        this.filters = filters;
+        this.selectedFact = 0;                  // Selecciona el primer hecho por defecto
+        this.selectedMeasure = 0;               // Selecciona la primera medida por defecto
+        this.parallelism = parallelism;
+        this.residualFilter = false;
     }
 
+    /**
+     * Reconstruye un cubo cargado desde disco (ver CubeSnapshot).
+     */
+    static Cube restore(
+        Map<String, Dimension> dimensions,
+        List<Measure> measures,
+        List<String> facts,
+        FactTable table,
+        BitmapIndex index,
+        Bitmap selection,
+        int selectedFact,
+        int selectedMeasure,
+        int parallelism
+    ) {
+        Cube cube = new Cube(new CubeData(
+            dimensions, measures, facts, table, index, selection,
+            new ArrayList<>(), new QueryCache(DEFAULT_CACHE_BYTES), new QueryMonitor()
+        ));
+        cube.selectedFact = selectedFact;
+        cube.selectedMeasure = selectedMeasure;
+        cube.parallelism = parallelism;
+        return cube;
+    }
+
+    /**
+     * Crea una vista nueva e independiente sobre los mismos datos, con la navegación inicial:
+     * sin filtros, dimensiones en su nivel inicial, primer hecho y primera medida.
+     * No copia datos; sirve para atender a cada usuario/hilo con su propia vista.
+     */
+    public Cube newView() {
+        Cube view = new Cube(this.data);
+        view.parallelism = this.parallelism;
+        return view;
+    }
+
+    /**
+     * Guarda el cubo en un archivo binario: dimensiones, hechos por columnas, índices y estado.
+     * Los agregados materializados no se guardan.
+     * Se puede volver a cargar con Cube.load().
+     *
+     * @throws IllegalArgumentException si la vista tiene filtros (slice, dice o filter);
+     *         newView() devuelve una vista sin filtros sobre los mismos datos
+     */
+    public void save(Path path) throws IOException {
+        CubeSnapshot.save(this, path);
+    }
+
+    /**
+     * Carga un cubo guardado con save(). Las columnas se leen del formato binario y se copian
+     * en bloque a memoria, sin volver a parsear los CSV.
+     */
+    public static Cube load(Path path) throws IOException {
+        return CubeSnapshot.load(path);
+    }
+
+    /**
+     * Los métodos add*() y setFactTable() sirven para armar el cubo (ver CubeBuilder).
+     * No modifican los datos compartidos: crean datos nuevos sólo para esta vista.
+     * Agregar hechos, medidas o agregados no cambia los resultados ya calculados, así que se
+     * conserva la caché; cambiar las dimensiones o la tabla de hechos empieza una caché nueva.
+     */
     public void addDimension(Dimension dimension) {
-        dimensions.put(dimension.getName(), dimension);
+        Map<String, Dimension> newDims = CubeData.copy(data.dimensions());
+        newDims.put(dimension.getName(), dimension);
+        this.dimensions.put(dimension.getName(), dimension);
+        setData(newDims, data.measures(), data.facts(), data.table(), data.index(),
+                data.rows(), data.aggregates(), newCache(), data.monitor());
+    }
+
+    /**
+     * Asigna la tabla de hechos y su índice al cubo. Todas sus filas pasan a formar parte del cubo.
+     */
+    public void setFactTable(FactTable table, BitmapIndex index) {
+        this.selection = Bitmap.full(table.size());
+        setData(data.dimensions(), data.measures(), data.facts(), table, index,
+                this.selection, data.aggregates(), newCache(), data.monitor());
+    }
+
+    /**
+     * Agrega un agregado materializado al cubo.
+     */
+    public void addAggregate(Aggregate aggregate) {
+        List<Aggregate> newAggregates = new ArrayList<>(data.aggregates());
+        newAggregates.add(aggregate);
+        setData(data.dimensions(), data.measures(), data.facts(), data.table(), data.index(),
+                data.rows(), newAggregates, data.cache(), data.monitor());
+    }
+
+    /**
+     * Agrega filas de hechos al cubo sin reconstruirlo.
+     * Extiende las columnas, el índice de bitmaps y los agregados recorriendo sólo las filas nuevas,
+     * y devuelve una vista (con la navegación inicial) sobre la nueva versión de los datos.
+     * Esta vista, y las demás vistas de la versión anterior, no cambian: siguen viendo las mismas
+     * filas y resultados.
+     *
+     * @param rows Filas nuevas, con las mismas foreign keys y hechos que el cubo
+     * @return Vista sobre los datos con las filas agregadas
+     */
+    public Cube appendFacts(FactTable rows) {
+        if (data.table() == null) {
+            throw new IllegalArgumentException("The cube has no facts to append to");
+        }
+        int from = data.table().size();
+        FactTable newTable = data.table().append(rows);
+        BitmapIndex newIndex = data.index().append(newTable, from);
+
+        // Los ids desconocidos de las filas nuevas pasan a ser miembros inferidos
+        Map<String, Dimension> newDims = CubeData.copy(data.dimensions());
+        List<String> changed = new ArrayList<>();
+        for (Dimension dimension : data.dimensions().values()) {
+            Dimension routed = dimension.withUnknownIds(newIndex);
+            if (routed != dimension) {
+                newDims.put(routed.getName(), routed);
+                changed.add(routed.getName());
+            }
+        }
+        List<Aggregate> newAggregates = new ArrayList<>();
+        for (Aggregate aggregate : data.aggregates()) {
+            if (Collections.disjoint(aggregate.getDimensions(), changed)) {
+                newAggregates.add(aggregate.append(newTable, from));
+            } else {
+                newAggregates.add(aggregate.rebuild(newTable, new ArrayList<>(newDims.values())));
+            }
+        }
+        Bitmap newRows = data.rows().append(Bitmap.range(from, newTable.size()));
+        Cube view = new Cube(new CubeData(
+            newDims, data.measures(), data.facts(), newTable, newIndex, newRows,
+            newAggregates, newCache(), data.monitor()
+        ));
+        view.parallelism = this.parallelism;
+        return view;
+    }
+
+    /**
+     * Agrega o actualiza miembros de una dimensión sin reconstruir el cubo (ver
+     * Dimension.appendMembers()) y devuelve una vista (con la navegación inicial) sobre la nueva
+     * versión de los datos. Los agregados que usan la dimensión se recalculan.
+     * Esta vista, y las demás vistas de la versión anterior, no cambian.
+     *
+     * @param dimension Nombre de la dimensión
+     * @param columns   Mapa de nombre de nivel (incluida la PK) a valores, uno por miembro
+     * @return Vista sobre los datos con los miembros agregados
+     */
+    public Cube appendMembers(String dimension, Map<String, List<Object>> columns) {
+        Dimension current = data.dimensions().get(dimension);
+        if (current == null) {
+            throw new IllegalArgumentException("Dimension not found");
+        }
+        Map<String, Dimension> newDims = CubeData.copy(data.dimensions());
+        newDims.put(dimension, current.appendMembers(columns));
+        List<Aggregate> newAggregates = new ArrayList<>();
+        for (Aggregate aggregate : data.aggregates()) {
+            if (aggregate.getDimensions().contains(dimension)) {
+                newAggregates.add(aggregate.rebuild(data.table(), new ArrayList<>(newDims.values())));
+            } else {
+                newAggregates.add(aggregate);
+            }
+        }
+        Cube view = new Cube(new CubeData(
+            newDims, data.measures(), data.facts(), data.table(), data.index(), data.rows(),
+            newAggregates, newCache(), data.monitor()
+        ));
+        view.parallelism = this.parallelism;
+        return view;
     }
 
-    public void addCell(Cell cell) {
-        cells.add(cell);
+    /**
+     * Devuelve los agregados materializados del cubo, del más chico al más grande.
+     */
+    public List<Aggregate> getAggregates() {
+        return data.aggregates();
+    }
+
+    /**
+     * Devuelve la caché de resultados del cubo, compartida por todas las vistas de sus datos.
+     * Permite consultar los aciertos y fallos, cambiar su capacidad o vaciarla.
+     */
+    public QueryCache getCache() {
+        return data.cache();
+    }
+
+    /**
+     * Devuelve el monitor de consultas del cubo, compartido por todas sus vistas y versiones.
+     * Permite ver las métricas por JMX, agregar listeners y definir el umbral de consultas lentas.
+     */
+    public QueryMonitor getMonitor() {
+        return data.monitor();
+    }
+
+    /**
+     * Reemplaza el monitor de consultas (por ejemplo, para que varios cubos compartan uno).
+     * La caché y sus contadores se conservan.
+     */
+    public void setMonitor(QueryMonitor monitor) {
+        setData(data.dimensions(), data.measures(), data.facts(), data.table(), data.index(),
+                data.rows(), data.aggregates(), data.cache(), monitor);
     }
 
     public void addFact(String fact) {
-        facts.add(fact);
+        List<String> newFacts = new ArrayList<>(data.facts());
+        newFacts.add(fact);
+        setData(data.dimensions(), data.measures(), newFacts, data.table(), data.index(),
+                data.rows(), data.aggregates(), data.cache(), data.monitor());
     }
 
     public void addMeasure(Measure metric) {
-        measures.add(metric);
+        List<Measure> newMeasures = new ArrayList<>(data.measures());
+        newMeasures.add(metric);
+        setData(data.dimensions(), newMeasures, data.facts(), data.table(), data.index(),
+                data.rows(), data.aggregates(), data.cache(), data.monitor());
+    }
+
+    private void setData(
+        Map<String, Dimension> dimensions,
+        List<Measure> measures,
+        List<String> facts,
+        FactTable table,
+        BitmapIndex index,
+        Bitmap rows,
+        List<Aggregate> aggregates,
+        QueryCache cache,
+        QueryMonitor monitor
+    ) {
+        this.data = new CubeData(
+            dimensions, measures, facts, table, index, rows, aggregates,
+            cache, monitor
+        );
+    }
+
+    /**
+     * Caché vacía con la misma memoria máxima que la actual.
+     */
+    private QueryCache newCache() {
+        return new QueryCache(data.cache().getMaxBytes());
     }
 
     public void selectFact(String fact) {
-        this.selectedFact = facts.indexOf(fact);
+        this.selectedFact = data.facts().indexOf(fact);
     }
 
     public void selectMeasure(String metric) {
-        for (Measure measure : this.measures) {
+        for (Measure measure : data.measures()) {
             if (measure.getName().equals(metric)) {
-                this.selectedMeasure = measures.indexOf(measure);
+                this.selectedMeasure = data.measures().indexOf(measure);
                 break;
             }
         }
     }
 
+    /**
+     * Define la cantidad de hilos con la que el cubo (y sus subcubos) agregan los hechos.
+     * Con 1 la agregación es secuencial; el resultado es el mismo en ambos modos.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
     @Override
     public String toString() {
-        return "Cube [" + cells.size() + " cells. Dimensions: " + dimensions.keySet()
-                + ". Facts: " + facts.toString()
-                + ". Measures: " + measures.toString() + "]";
+        return "Cube [" + selection.cardinality() + " cells. Dimensions: " + dimensions.keySet()
+                + ". Facts: " + data.facts().toString()
+                + ". Measures: " + data.measures().toString() + "]";
     }
 
     /**
@@ -94,135 +354,383 @@ public class Cube {
      * Devuelve la instancia del hecho seleccionado actualmente.
      */
     public String getSelectedFact() {
-        return facts.get(selectedFact);
+        return data.facts().get(selectedFact);
     }
 
     /**
      * Devuelve la instancia de la medida seleccionada actualmente.
      */
     public Measure getSelectedMeasure() {
-        return measures.get(selectedMeasure);
+        return data.measures().get(selectedMeasure);
     }
 
     /**
-     * Utiliza el método cellFromGroup() de Cell para agrupar los valores de las celdas.
+     * Utiliza el método cellFromGroup() de Cell para agrupar las filas del cubo.
      */
     public Cell getCell() {
-        return Cell.cellFromGroup(this.cells);
+        return cell(new String[0], new String[0]);
     }
 
     public Cell getCell(String dimension, String value) {
-        return Cell.cellFromGroup(
-            searchCells(
-                dimension, dimensions.get(dimension).getIdKey(), new String[] { value }
-            )
-        );
+        return cell(new String[] { dimension }, new String[] { value });
     }
 
     public Cell getCell(String dim1, String value1, String dim2, String value2) {
-        return Cell.cellFromGroup(
-            searchCells(
-                dim1, dimensions.get(dim1).getIdKey(), new String[] { value1 },
-                dim2, dimensions.get(dim2).getIdKey(), new String[] { value2 }
-            )
-        );
+        return cell(new String[] { dim1, dim2 }, new String[] { value1, value2 });
     }
 
     /**
-     * Reune los IDs que coinciden con los values de la dimensión.
+     * Celda con las filas de la vista que tienen el valor indicado en cada dimensión.
+     */
+    private Cell cell(String[] dimensionNames, String[] values) {
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < dimensionNames.length; i++) {
+            query.append(i == 0 ? "" : ",").append(dimensionNames[i]).append('=').append(values[i]);
+        }
+        QueryStats stats = data.monitor().begin("getCell", query.toString());
+        try {
+            long start = System.nanoTime();
+            Bitmap rows = selection;
+            for (int i = 0; i < dimensionNames.length; i++) {
+                rows = rows.and(searchRows(dimensionNames[i], new String[] { values[i] }));
+            }
+            stats.addPhase(QueryStats.Phase.FILTER, System.nanoTime() - start);
+            stats.addRows(selection.cardinality(), rows.cardinality());
+            stats.addCells(1);
+            return Cell.cellFromGroup(data.table(), rows.toArray());
+        } finally {
+            data.monitor().end(stats);
+        }
+    }
+
+    Map<String, Dimension> dimensions() {
+        return this.dimensions;
+    }
+
+    List<Measure> measures() {
+        return data.measures();
+    }
+
+    List<String> facts() {
+        return data.facts();
+    }
+
+    FactTable table() {
+        return data.table();
+    }
+
+    BitmapIndex index() {
+        return data.index();
+    }
+
+    Bitmap selection() {
+        return this.selection;
+    }
+
+    /**
+     * Indica si la vista tiene filtros de slice, dice o filter.
+     */
+    boolean isFiltered() {
+        return !this.filters.isEmpty();
+    }
+
+    /**
+     * Agrupa las filas del cubo por el nivel activo de las dimensiones indicadas,
+     * calculando el hecho y la medida seleccionados.
+     * Si el resultado ya está en la caché, se devuelve sin recalcular. Si algún agregado
+     * materializado cubre la consulta, se responde desde el más chico de ellos;
+     * si no, se calculan todas las celdas en una sola pasada sobre las filas (ver GroupBy).
+     * Sin dimensiones, devuelve una grilla de una sola celda con todas las filas.
+     */
+    public Grid groupBy(String... dimensionNames) {
+        return groupBy(this.parallelism, dimensionNames);
+    }
+
+    /**
+     * Sobrecarga de groupBy() que indica la cantidad de hilos sólo para esta consulta.
+     */
+    public Grid groupBy(int parallelism, String... dimensionNames) {
+        String key = cacheKey(dimensionNames, getSelectedFact(), getSelectedMeasure());
+        return groupBy(
+            parallelism, dimensionNames, List.of(getSelectedFact()), List.of(getSelectedMeasure()), key
+        )[0];
+    }
+
+    /**
+     * Agrupa las filas por el nivel activo de las dimensiones indicadas, calculando varias
+     * columnas (pares hecho/medida) a la vez. Cada columna se busca en la caché y en los
+     * agregados materializados como en groupBy(); las que falten se calculan todas juntas
+     * en una sola pasada sobre las filas.
      *
-     * @param dimension Nombre de la dimensión
-     * @param values    Valores a buscar
-     * @return Lista de IDs a buscar
+     * @param columns        Columnas del resultado
+     * @param dimensionNames Dimensiones a agrupar
+     * @return Grilla con una columna por cada par hecho/medida, en el mismo orden
      */
-    private List<Integer> getIdsToSearch(String dimension, String[] values) {
-        List<Integer> idsToSearch = new ArrayList<>();
-        for (String value : values) {
-            idsToSearch.addAll(dimensions.get(dimension).getIdList(value));
+    public MultiGrid groupBy(List<MeasureColumn> columns, String... dimensionNames) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("At least one column is required");
+        }
+        List<String> facts = new ArrayList<>();
+        List<Measure> measures = new ArrayList<>();
+        for (MeasureColumn column : columns) {
+            if (!data.facts().contains(column.getFact())) {
+                throw new IllegalArgumentException("Fact not found: " + column.getFact());
+            }
+            facts.add(column.getFact());
+            measures.add(findMeasure(column.getMeasure()));
         }
-        return idsToSearch;
+        String query = stateKey(dimensionNames) + '|' + columns;
+        Grid[] grids = groupBy(this.parallelism, dimensionNames, facts, measures, query);
+        return new MultiGrid(new ArrayList<>(columns), grids);
     }
 
     /**
-     * Filtra o reduce el cubo a un subcubo con los valores de corte especificados
-     * para una dimensión.
+     * Resuelve una columna por hecho y medida: primero la caché, después los agregados
+     * materializados, y las que quedan se calculan en una sola pasada de GroupBy.
      */
-    private Map<String, Dimension> getNewDimensions(
-        Map<String, Dimension> origDims,
-        String[] values,
-        String dimName
+    private Grid[] groupBy(
+        int parallelism,
+        String[] dimensionNames,
+        List<String> facts,
+        List<Measure> measures,
+        String query
     ) {
-        Map<String, Dimension> newDimensions = new HashMap<>(origDims);
-        Dimension dim = newDimensions.get(dimName).diceDimension(List.of(values));
-        newDimensions.put(dimName, dim);
-        return newDimensions;
+        List<Dimension> groupDimensions = new ArrayList<>();
+        for (String name : dimensionNames) {
+            groupDimensions.add(getDimension(name));
+        }
+        QueryStats stats = data.monitor().begin("groupBy", query);
+        try {
+            int tableSize = data.table() == null ? 0 : data.table().size();
+            Grid[] grids = new Grid[facts.size()];
+            String[] keys = new String[facts.size()];
+            String source = "cache";
+            long start = System.nanoTime();
+            List<Integer> missing = new ArrayList<>();
+            // Con un OR entre dimensiones, las dimensiones de la vista no reflejan el filtro
+            List<Aggregate> aggregates = residualFilter ? Collections.emptyList() : data.aggregates();
+            for (int c = 0; c < grids.length; c++) {
+                keys[c] = cacheKey(dimensionNames, facts.get(c), measures.get(c));
+                grids[c] = data.cache().get(keys[c], tableSize);
+                if (grids[c] != null) {
+                    continue;
+                }
+                for (Aggregate aggregate : aggregates) {
+                    grids[c] = aggregate.answer(
+                        data.dimensions(), this.dimensions, groupDimensions,
+                        facts.get(c), measures.get(c)
+                    );
+                    if (grids[c] != null) {
+                        source = "aggregate";
+                        stats.addRows(aggregate.getGroups(), aggregate.getGroups());
+                        break;
+                    }
+                }
+                if (grids[c] == null) {
+                    missing.add(c);
+                }
+            }
+            stats.addPhase(QueryStats.Phase.AGGREGATE, System.nanoTime() - start);
+            if (!missing.isEmpty()) {
+                source = "scan";
+                List<String> scanFacts = new ArrayList<>();
+                List<Measure> scanMeasures = new ArrayList<>();
+                for (int c : missing) {
+                    scanFacts.add(facts.get(c));
+                    scanMeasures.add(measures.get(c));
+                }
+                Grid[] scanned = new GroupBy(
+                    data.table(),
+                    this.selection,
+                    groupDimensions,
+                    scanFacts,
+                    scanMeasures,
+                    parallelism
+                ).executeAll(stats);
+                for (int i = 0; i < scanned.length; i++) {
+                    grids[missing.get(i)] = scanned[i];
+                }
+            }
+            stats.setSource(source);
+            for (int c = 0; c < grids.length; c++) {
+                stats.addCells(grids[c].getCellCount());
+                data.cache().put(keys[c], grids[c], tableSize);
+            }
+            return grids;
+        } finally {
+            data.monitor().end(stats);
+        }
     }
 
     /**
-     * Agrupa las celdas que coinciden con los criterios de búsqueda.
-     * Es escencial para las operaciones del cubo y la impresión por pantalla
+     * Devuelve los N miembros del nivel activo de la dimensión con mayor valor del hecho y la
+     * medida seleccionados (por ejemplo, los 20 productos con más ventas).
      */
-    private List<Cell> searchCells(
-        List<Cell> cellsToSearch,
-        String dimension,
-        String key,
-        String[] values
-    ) {
-        List<Cell> result = new ArrayList<>();
-        List<Integer> idsToSearch = getIdsToSearch(dimension, values);
-        for (int id : idsToSearch) {
-            for (Cell cell : cellsToSearch) {
-                if (cell.isResult(key, id)) {
-                    result.add(cell);
+    public Ranking top(int n, String dimension) {
+        return rank(n, true, dimension, null);
+    }
+
+    /**
+     * Sobrecarga de top() con un ranking por cada miembro del nivel activo de partitionDimension
+     * (por ejemplo, los 5 productos con más ventas de cada región).
+     */
+    public Ranking top(int n, String dimension, String partitionDimension) {
+        return rank(n, true, dimension, partitionDimension);
+    }
+
+    /**
+     * Devuelve los N miembros con menor valor; ver top().
+     */
+    public Ranking bottom(int n, String dimension) {
+        return rank(n, false, dimension, null);
+    }
+
+    public Ranking bottom(int n, String dimension, String partitionDimension) {
+        return rank(n, false, dimension, partitionDimension);
+    }
+
+    /**
+     * Agrupa por la dimensión (y la de partición) con groupBy() y recorre las celdas con datos
+     * una vez, conservando en un montículo de N elementos por partición los mejores valores.
+     * La grilla del agrupamiento se arma completa (y se guarda en la caché como cualquier otra),
+     * porque el valor de una celda recién es final al combinar todas las particiones de filas;
+     * lo que se evita es ordenarla: sólo se ordenan los N elementos de cada montículo.
+     * Las celdas con NaN no se rankean.
+     */
+    private Ranking rank(int n, boolean descending, String dimension, String partitionDimension) {
+        if (n < 1) {
+            throw new IllegalArgumentException("N must be at least 1");
+        }
+        if (dimension.equals(partitionDimension)) {
+            throw new IllegalArgumentException("The partition dimension must differ from the ranked one");
+        }
+        String query = n + "," + dimension + (partitionDimension == null ? "" : "|" + partitionDimension);
+        QueryStats stats = data.monitor().begin(descending ? "top" : "bottom", query);
+        try {
+            Grid grid = partitionDimension == null
+                ? groupBy(dimension)
+                : groupBy(partitionDimension, dimension);
+            long start = System.nanoTime();
+            int axis = partitionDimension == null ? 0 : 1;
+            long stride = partitionDimension == null ? Long.MAX_VALUE : grid.stride(0);
+            int partitionCount = partitionDimension == null ? 1 : grid.getMembers(0).size();
+            BoundedHeap[] heaps = new BoundedHeap[partitionCount];
+            grid.forEachCell((cell, value) -> {
+                if (Double.isNaN(value)) {
+                    return;
                 }
+                int partition = (int) (cell / stride);
+                if (heaps[partition] == null) {
+                    heaps[partition] = new BoundedHeap(n, descending);
+                }
+                heaps[partition].offer(value, (int) (cell % stride));
+            });
+
+            List<Object> partitions = new ArrayList<>();
+            List<List<Object>> members = new ArrayList<>();
+            List<double[]> values = new ArrayList<>();
+            List<Object> candidates = grid.getMembers(axis);
+            for (int p = 0; p < partitionCount; p++) {
+                if (heaps[p] == null && partitionDimension != null) {
+                    continue;   // Partición sin datos
+                }
+                double[] ranked = new double[heaps[p] == null ? 0 : heaps[p].size()];
+                int[] positions = heaps[p] == null ? new int[0] : heaps[p].drain(ranked);
+                List<Object> rankedMembers = new ArrayList<>();
+                for (int position : positions) {
+                    rankedMembers.add(candidates.get(position));
+                }
+                partitions.add(partitionDimension == null ? null : grid.getMembers(0).get(p));
+                members.add(rankedMembers);
+                values.add(ranked);
             }
+            stats.addPhase(QueryStats.Phase.AGGREGATE, System.nanoTime() - start);
+            return new Ranking(
+                dimension, grid.getLevel(axis),
+                partitionDimension, partitionDimension == null ? null : grid.getLevel(0),
+                getSelectedFact(), getSelectedMeasure().getName(), descending,
+                partitions, members, values
+            );
+        } finally {
+            data.monitor().end(stats);
         }
-        return result;
     }
 
     /**
-     * Sobrecarga para searchCells(), usando las celdas que la instancia del cubo posee.
+     * Forma canónica del estado de una consulta: dimensiones agrupadas, nivel activo de cada
+     * dimensión (ordenadas por nombre), filtros aplicados (ordenados), hecho y medida.
      */
-    private List<Cell> searchCells(String dimension, String key, String[] values) {
-        return searchCells(this.cells, dimension, key, values);
+    private String cacheKey(String[] dimensionNames, String fact, Measure measure) {
+        return stateKey(dimensionNames) + '|' + fact + '|' + measure.getName();
     }
 
     /**
-     * Sobrecarga para seachCells(), pero para dos dimensiones.
+     * Parte de la clave de caché que no depende del hecho ni de la medida.
      */
-    private List<Cell> searchCells(
-        String dim1, String key1, String[] values1,
-        String dim2, String key2, String[] values2
-    ) {
-        List<Cell> cellsDim1 = searchCells(dim1, key1, values1);
-        List<Cell> resultCells = searchCells(cellsDim1, dim2, key2, values2);
-        return resultCells;
+    private String stateKey(String[] dimensionNames) {
+        StringBuilder key = new StringBuilder();
+        key.append(String.join(",", dimensionNames)).append('|');
+        for (String name : new TreeSet<>(dimensions.keySet())) {
+            key.append(name).append('@').append(dimensions.get(name).getCurrentLevel()).append(',');
+        }
+        key.append('|');
+        for (String filter : new TreeSet<>(filters)) {
+            key.append(filter).append(';');
+        }
+        return key.toString();
+    }
+
+    private Measure findMeasure(String name) {
+        for (Measure measure : data.measures()) {
+            if (measure.getName().equals(name)) {
+                return measure;
+            }
+        }
+        throw new IllegalArgumentException("Measure not found: " + name);
     }
 
     /**
-     * Sobrecarga para searchCells(), pero para tres dimensiones.
+     * Reune los IDs que coinciden con los values de la dimensión.
+     *
+     * @param dimension Nombre de la dimensión
+     * @param values    Valores a buscar
+     * @return Lista de IDs a buscar
      */
-    private List<Cell> searchCells(
-        String dim1, String key1, String[] values1,
-        String dim2, String key2, String[] values2,
-        String dim3, String key3, String[] values3
-    ) {
-        List<Cell> cellsDim1 = searchCells(dim1, key1, values1);
-        List<Cell> cellsDim2 = searchCells(cellsDim1, dim2, key2, values2);
-        List<Cell> resultCells = searchCells(cellsDim2, dim3, key3, values3);
-        return resultCells;
+    private int[] getIdsToSearch(String dimension, String[] values) {
+        List<Integer> idsToSearch = new ArrayList<>();
+        for (String value : values) {
+            for (int id : dimensions.get(dimension).getIds(value)) {
+                idsToSearch.add(id);
+            }
+        }
+        int[] ids = new int[idsToSearch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idsToSearch.get(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Devuelve el bitmap de las filas de la tabla que coinciden con los valores de la dimensión.
+     * Es escencial para las operaciones del cubo y la impresión por pantalla.
+     * Dentro de una dimensión, los bitmaps de cada id se combinan con OR.
+     */
+    private Bitmap searchRows(String dimension, String[] values) {
+        String key = dimensions.get(dimension).getIdKey();
+        return data.index().any(key, getIdsToSearch(dimension, values));
     }
 
     /**
      * Drill-down.
      * Reduce la dimensión a un nivel inferior en la dimensión especificada.
+     * Sólo cambia el nivel en esta vista; los subcubos y las demás vistas no se modifican.
      *
      * @return true si la operación fue exitosa.
      */
     public boolean drillDown(String dimension) {
         Dimension dim = dimensions.get(dimension);
         if (dim.getCurrentLevel() < dim.getLevels().size() - 1) {
-            dim.setCurrentLevel(dim.getCurrentLevel() + 1);
+            dimensions.put(dimension, dim.withLevel(dim.getCurrentLevel() + 1));
             return true;
         }
         return false;
@@ -231,13 +739,14 @@ public class Cube {
     /**
      * Roll-up.
      * Aumenta la dimensión a un nivel inferior en la dimensión especificada.
+     * Sólo cambia el nivel en esta vista; los subcubos y las demás vistas no se modifican.
      *
      * @return true si la operación fue exitosa.
      */
     public boolean rollUp(String dimension) {
         Dimension dim = dimensions.get(dimension);
         if (dim.getCurrentLevel() > 0) {
-            dim.setCurrentLevel(dim.getCurrentLevel() - 1);
+            dimensions.put(dimension, dim.withLevel(dim.getCurrentLevel() - 1));
             return true;
         }
         return false;
@@ -252,14 +761,7 @@ public class Cube {
      * @return Nuevo cubo resultado de la operación slice
      */
     public Cube slice(String dimension, String value) {
-        String key = dimensions.get(dimension).getIdKey();
-        List<Cell> newCells = searchCells(dimension, key, new String[] { value });
-        return new Cube(
-            getNewDimensions(this.dimensions,new String[] { value }, dimension),
-            this.measures,
-            this.facts,
-            newCells
-        );
+        return dice(dimension, new String[] { value });
     }
 
     /**
@@ -271,14 +773,9 @@ public class Cube {
      * @return Nuevo cubo resultado de la operación dice
      */
     public Cube dice(String dimension, String[] values) {
-        String key = dimensions.get(dimension).getIdKey();
-        List<Cell> newCells = searchCells(dimension, key, values);
-        return new Cube(
-            getNewDimensions(this.dimensions, values, dimension),
-            this.measures,
-            this.facts,
-            newCells
-        );
+        Map<String, String[]> filters = new LinkedHashMap<>();
+        filters.put(dimension, values);
+        return dice(filters);
     }
 
     /**
@@ -288,12 +785,10 @@ public class Cube {
         String dim1, String[] values1,
         String dim2, String[] values2
     ) {
-        String key1 = dimensions.get(dim1).getIdKey();
-        String key2 = dimensions.get(dim2).getIdKey();
-        List<Cell> newCells = searchCells(dim1, key1, values1, dim2, key2, values2);
-        Map<String, Dimension> newDims1 = getNewDimensions(this.dimensions, values1, dim1);
-        Map<String, Dimension> newDims = getNewDimensions(newDims1, values2, dim2);
-        return new Cube(newDims, this.measures, this.facts, newCells);
+        Map<String, String[]> filters = new LinkedHashMap<>();
+        filters.put(dim1, values1);
+        filters.put(dim2, values2);
+        return dice(filters);
     }
 
     /**
@@ -304,18 +799,73 @@ public class Cube {
         String dim2, String[] values2,
         String dim3, String[] values3
     ) {
-        String key1 = dimensions.get(dim1).getIdKey();
-        String key2 = dimensions.get(dim2).getIdKey();
-        String key3 = dimensions.get(dim3).getIdKey();
-        List<Cell> newCells = searchCells(
-            dim1, key1, values1,
-            dim2, key2, values2,
-            dim3, key3, values3
-        );
-        Map<String, Dimension> newDims1 = getNewDimensions(this.dimensions, values1, dim1);
-        Map<String, Dimension> newDims2 = getNewDimensions(newDims1, values2, dim2);
-        Map<String, Dimension> newDims = getNewDimensions(newDims2, values3, dim3);
-        return new Cube(newDims, this.measures, this.facts, newCells);
+        Map<String, String[]> filters = new LinkedHashMap<>();
+        filters.put(dim1, values1);
+        filters.put(dim2, values2);
+        filters.put(dim3, values3);
+        return dice(filters);
+    }
+
+    /**
+     * Sobrecarga de dice() para cualquier cantidad de dimensiones.
+     * Los valores de una misma dimensión se combinan con OR y las dimensiones entre sí con AND.
+     * El subcubo comparte la tabla y el índice con el cubo original; sólo guarda su bitmap.
+     *
+     * @param filters Mapa de nombre de dimensión a valores a filtrar
+     * @return Nuevo cubo resultado de la operación dice
+     */
+    public Cube dice(Map<String, String[]> filters) {
+        StringBuilder query = new StringBuilder();
+        List<Filter> leaves = new ArrayList<>();
+        for (Map.Entry<String, String[]> filter : filters.entrySet()) {
+            query.append(query.length() == 0 ? "" : ",").append(filter.getKey())
+                .append('=').append(String.join("|", filter.getValue()));
+            leaves.add(Filter.in(filter.getKey(), filter.getValue()));
+        }
+        return filter(Filter.and(leaves.toArray(new Filter[0])), "dice", query.toString());
+    }
+
+    /**
+     * Devuelve un subcubo con las filas que cumplen la expresión de filtro (ver Filter).
+     *
+     * Las hojas se resuelven primero contra los miembros de las dimensiones y los términos del AND
+     * se evalúan del más selectivo al menos selectivo (ver FilterPlan). Las hojas del AND de más
+     * afuera reducen además las dimensiones del subcubo, como dice(). Un OR entre dimensiones
+     * distintas sólo reduce las filas; en ese caso el subcubo no usa los agregados materializados.
+     *
+     * @param filter Expresión de filtro
+     * @return Nuevo cubo con las filas que cumplen el filtro
+     */
+    public Cube filter(Filter filter) {
+        return filter(filter, "filter", null);
+    }
+
+    private Cube filter(Filter filter, String operation, String query) {
+        QueryStats stats = data.monitor().begin(operation, query == null ? filter.toString() : query);
+        try {
+            long start = System.nanoTime();
+            FilterPlan.Term plan = filter.plan(this.dimensions);
+            Map<String, Dimension> newDims = new HashMap<>(this.dimensions);
+            List<String> newFilters = new ArrayList<>(this.filters);
+            boolean residual = this.residualFilter;
+            for (FilterPlan.Term term : FilterPlan.conjuncts(plan)) {
+                newFilters.add(term.canonical());
+                if (term instanceof FilterPlan.Leaf) {
+                    FilterPlan.Leaf leaf = (FilterPlan.Leaf) term;
+                    newDims.put(leaf.getDimension().getName(), leaf.getDimension().diceRows(leaf.getRows()));
+                } else {
+                    residual = true;
+                }
+            }
+            Bitmap newSelection = plan.evaluate(data.index(), this.selection);
+            stats.addPhase(QueryStats.Phase.FILTER, System.nanoTime() - start);
+            stats.addRows(this.selection.cardinality(), newSelection.cardinality());
+            Cube cube = new Cube(this.data, newDims, newSelection, newFilters, this.parallelism);
+            cube.residualFilter = residual;
+            return cube;
+        } finally {
+            data.monitor().end(stats);
+        }
     }
 
 }
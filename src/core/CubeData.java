@@ -0,0 +1,102 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import metrics.Measure;
+
+/**
+ * Datos inmutables de un cubo OLAP, compartidos por todas sus vistas (ver Cube).
+ *
+ * Guarda las dimensiones con sus diccionarios e índices, la tabla de hechos, el índice de
+ * bitmaps, las medidas, los agregados materializados, la caché de resultados y el monitor de
+ * consultas. Ninguna operación del cubo los modifica: la navegación (filtros, niveles, hecho y
+ * medida) vive en cada Cube, así varios hilos pueden consultar los mismos datos a la vez, cada
+ * uno con su propia vista.
+ */
+final class CubeData {
+    private final Map<String, Dimension> dimensions;    // Dimensiones en su nivel inicial
+    private final List<Measure> measures;               // Medidas disponibles
+    private final List<String> facts;                   // Nombres de los hechos
+    private final FactTable table;                      // Tabla de hechos columnar
+    private final BitmapIndex index;                    // Índice de bitmaps de las foreign keys
+    private final Bitmap rows;                          // Filas de la tabla que forman el cubo
+    private final List<Aggregate> aggregates;           // Agregados, del más chico al más grande
+    private final QueryCache cache;                     // Resultados de groupBy() de todas las vistas
+    private final QueryMonitor monitor;                 // Métricas de las consultas, compartidas entre versiones
+
+    CubeData(
+        Map<String, Dimension> dimensions,
+        List<Measure> measures,
+        List<String> facts,
+        FactTable table,
+        BitmapIndex index,
+        Bitmap rows,
+        List<Aggregate> aggregates,
+        QueryCache cache,
+        QueryMonitor monitor
+    ) {
+        this.dimensions = Collections.unmodifiableMap(copy(dimensions));
+        this.measures = Collections.unmodifiableList(new ArrayList<>(measures));
+        this.facts = Collections.unmodifiableList(new ArrayList<>(facts));
+        this.table = table;
+        this.index = index;
+        this.rows = rows;
+        List<Aggregate> sorted = new ArrayList<>(aggregates);
+        sorted.sort((a, b) -> Integer.compare(a.getGroups(), b.getGroups()));
+        this.aggregates = Collections.unmodifiableList(sorted);
+        this.cache = cache;
+        this.monitor = monitor;
+    }
+
+    /**
+     * Copia un mapa de dimensiones en un HashMap con la capacidad por defecto,
+     * así el orden de iteración es el mismo que el del mapa de un cubo nuevo.
+     */
+    static Map<String, Dimension> copy(Map<String, Dimension> dimensions) {
+        Map<String, Dimension> copy = new HashMap<>();
+        for (Map.Entry<String, Dimension> entry : dimensions.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        return copy;
+    }
+
+    Map<String, Dimension> dimensions() {
+        return this.dimensions;
+    }
+
+    List<Measure> measures() {
+        return this.measures;
+    }
+
+    List<String> facts() {
+        return this.facts;
+    }
+
+    FactTable table() {
+        return this.table;
+    }
+
+    BitmapIndex index() {
+        return this.index;
+    }
+
+    Bitmap rows() {
+        return this.rows;
+    }
+
+    List<Aggregate> aggregates() {
+        return this.aggregates;
+    }
+
+    QueryCache cache() {
+        return this.cache;
+    }
+
+    QueryMonitor monitor() {
+        return this.monitor;
+    }
+}
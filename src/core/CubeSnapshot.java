@@ -0,0 +1,565 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import metrics.ApproxDistinctCount;
+import metrics.Measure;
+import metrics.Quantile;
+
+/**
+ * Formato binario para persistir un cubo (ver Cube.save() y Cube.load()).
+ *
+ * El archivo tiene una cabecera con número mágico y versión, seguida de las dimensiones
+ * (niveles codificados por diccionario), la tabla de hechos por columnas, el índice de bitmaps,
+ * la selección de filas del cubo y su estado (medidas, hecho y medida seleccionados).
+ * Todos los números se guardan en little endian y las columnas quedan alineadas a 8 bytes.
+ *
+ * Sólo se guardan cubos sin filtros: la vista guarda sus dimensiones, filas y medidas tal cual,
+ * y al cargarla serían los datos base del cubo nuevo.
+ *
+ * La carga es una lectura binaria rápida: recorre el archivo por ventanas mapeadas en memoria y
+ * copia cada columna a un arreglo del heap con lecturas en bloque, sin parsear texto. El cubo
+ * cargado no depende del archivo; cada proceso que lo carga tiene su propia copia.
+ */
+final class CubeSnapshot {
+    static final int MAGIC = 0x4F425543;    // "CUBO" en little endian
+    static final int VERSION = 3;
+
+    private static final long WINDOW = 1 << 30;     // Bytes mapeados por vez al cargar
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes escritos por vez al guardar
+
+    // Tipos de los valores de los diccionarios
+    private static final byte INTEGER = 0;
+    private static final byte FLOAT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+    private static final byte DATE = 4;
+
+    // Representación de los bitmaps
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private CubeSnapshot() {
+    }
+
+    static void save(Cube cube, Path path) throws IOException {
+        if (cube.isFiltered()) {
+            throw new IllegalArgumentException("Cannot save a filtered cube; save newView() to keep all the rows");
+        }
+        try (Writer out = new Writer(path)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            Map<String, Dimension> dimensions = cube.dimensions();
+            out.writeInt(dimensions.size());
+            for (Dimension dimension : dimensions.values()) {
+                writeDimension(out, dimension);
+            }
+
+            FactTable table = cube.table();
+            out.writeStrings(table.getForeignKeys());
+            out.writeStrings(table.getFacts());
+            out.writeInt(table.size());
+            for (String key : table.getForeignKeys()) {
+                out.writeInts(table.getKeyColumn(key), table.size());
+            }
+            for (String fact : table.getFacts()) {
+                out.writeDoubles(table.getFactColumn(fact), table.size());
+            }
+
+            Map<String, Map<Integer, Bitmap>> bitmaps = cube.index().bitmaps();
+            for (String key : table.getForeignKeys()) {
+                Map<Integer, Bitmap> keyIndex = bitmaps.get(key);
+                out.writeInt(keyIndex.size());
+                for (Map.Entry<Integer, Bitmap> entry : keyIndex.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    writeBitmap(out, entry.getValue());
+                }
+            }
+            writeBitmap(out, cube.selection());
+
+            out.writeInt(cube.measures().size());
+            for (Measure measure : cube.measures()) {
+                writeMeasure(out, measure);
+            }
+            out.writeStrings(cube.facts());
+            out.writeInt(cube.facts().indexOf(cube.getSelectedFact()));
+            out.writeInt(cube.measures().indexOf(cube.getSelectedMeasure()));
+            out.writeInt(cube.getParallelism());
+        }
+    }
+
+    static Cube load(Path path) throws IOException {
+        try (Reader in = new Reader(path)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cube snapshot: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported cube snapshot version " + version);
+            }
+
+            Map<String, Dimension> dimensions = new HashMap<>();
+            int dimensionCount = in.readInt();
+            for (int d = 0; d < dimensionCount; d++) {
+                Dimension dimension = readDimension(in);
+                dimensions.put(dimension.getName(), dimension);
+            }
+
+            List<String> foreignKeys = in.readStrings();
+            List<String> factNames = in.readStrings();
+            int size = in.readInt();
+            int[][] keyColumns = new int[foreignKeys.size()][];
+            for (int k = 0; k < keyColumns.length; k++) {
+                keyColumns[k] = in.readInts(size);
+            }
+            double[][] factColumns = new double[factNames.size()][];
+            for (int f = 0; f < factColumns.length; f++) {
+                factColumns[f] = in.readDoubles(size);
+            }
+            FactTable table = new FactTable(foreignKeys, factNames, keyColumns, factColumns, size);
+
+            Map<String, Map<Integer, Bitmap>> bitmaps = new HashMap<>();
+            for (String key : foreignKeys) {
+                int ids = in.readInt();
+                Map<Integer, Bitmap> keyIndex = new HashMap<>();
+                for (int i = 0; i < ids; i++) {
+                    int id = in.readInt();
+                    keyIndex.put(id, readBitmap(in));
+                }
+                bitmaps.put(key, keyIndex);
+            }
+            Bitmap selection = readBitmap(in);
+
+            int measureCount = in.readInt();
+            List<Measure> measures = new ArrayList<>();
+            for (int m = 0; m < measureCount; m++) {
+                measures.add(readMeasure(in));
+            }
+            List<String> facts = in.readStrings();
+            int selectedFact = in.readInt();
+            int selectedMeasure = in.readInt();
+            int parallelism = in.readInt();
+
+            return Cube.restore(
+                dimensions,
+                measures,
+                facts,
+                table,
+                new BitmapIndex(bitmaps),
+                selection,
+                selectedFact,
+                selectedMeasure,
+                parallelism
+            );
+        }
+    }
+
+    private static void writeDimension(Writer out, Dimension dimension) throws IOException {
+        out.writeString(dimension.getName());
+        out.writeString(dimension.getIdKey());
+        out.writeStrings(dimension.getLevels());
+        out.writeInt(dimension.getCurrentLevel());
+        out.writeByte(dimension.getUnknownMember() == null ? (byte) 0 : (byte) 1);
+        if (dimension.getUnknownMember() != null) {
+            out.writeString(dimension.getUnknownMember());
+        }
+        List<String> levelNames = new ArrayList<>();
+        levelNames.add(dimension.getIdKey());
+        levelNames.addAll(dimension.getLevels());
+        for (String levelName : levelNames) {
+            Level level = dimension.getLevel(levelName);
+            out.writeString(level.getName());
+            out.writeInt(level.getMembers().size());
+            for (Object member : level.getMembers()) {
+                writeValue(out, member);
+            }
+            out.writeInt(level.size());
+            out.writeInts(level.getCodes(), level.size());
+        }
+    }
+
+    private static Dimension readDimension(Reader in) throws IOException {
+        String name = in.readString();
+        String idKey = in.readString();
+        List<String> hierarchy = in.readStrings();
+        int currentLevel = in.readInt();
+        String unknownMember = in.readByte() == 0 ? null : in.readString();
+        Map<String, Level> levels = new LinkedHashMap<>();
+        for (int l = 0; l < hierarchy.size() + 1; l++) {
+            String levelName = in.readString();
+            int members = in.readInt();
+            List<Object> dictionary = new ArrayList<>(members);
+            for (int m = 0; m < members; m++) {
+                dictionary.add(readValue(in));
+            }
+            int rows = in.readInt();
+            levels.put(levelName, new Level(levelName, in.readInts(rows), dictionary));
+        }
+        Dimension dimension = new Dimension(name, idKey, levels, hierarchy);
+        dimension.setCurrentLevel(currentLevel);
+        return dimension.withUnknownMember(unknownMember);
+    }
+
+    private static void writeValue(Writer out, Object value) throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeInt(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof LocalDate) {
+            out.writeByte(DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else {
+            out.writeByte(STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    private static Object readValue(Reader in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case INTEGER:
+                return in.readInt();
+            case FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case STRING:
+                return in.readString();
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeBitmap(Writer out, Bitmap bitmap) throws IOException {
+        out.writeInt(bitmap.cardinality());
+        if (bitmap.words() != null) {
+            out.writeByte(DENSE);
+            out.writeInt(bitmap.words().length);
+            out.writeLongs(bitmap.words());
+        } else {
+            out.writeByte(SPARSE);
+            out.writeInt(bitmap.rows().length);
+            out.writeInts(bitmap.rows(), bitmap.rows().length);
+        }
+    }
+
+    private static Bitmap readBitmap(Reader in) throws IOException {
+        int cardinality = in.readInt();
+        byte kind = in.readByte();
+        int length = in.readInt();
+        if (kind == DENSE) {
+            return Bitmap.of(in.readLongs(length), null, cardinality);
+        }
+        return Bitmap.of(null, in.readInts(length), cardinality);
+    }
+
+    /**
+     * Guarda la clase de la medida, su nombre y sus parámetros (por ejemplo, el cuantil y la
+     * compresión de Quantile), para poder reconstruirla igual al cargar.
+     */
+    private static void writeMeasure(Writer out, Measure measure) throws IOException {
+        double[] parameters;
+        if (measure instanceof Quantile) {
+            Quantile quantile = (Quantile) measure;
+            parameters = new double[] { quantile.getQuantile(), quantile.getCompression() };
+        } else if (measure instanceof ApproxDistinctCount) {
+            parameters = new double[] { ((ApproxDistinctCount) measure).getPrecision() };
+        } else {
+            parameters = new double[0];
+        }
+        out.writeString(measure.getClass().getName());
+        out.writeString(measure.getName());
+        out.writeInt(parameters.length);
+        for (double parameter : parameters) {
+            out.writeLong(Double.doubleToLongBits(parameter));
+        }
+    }
+
+    /**
+     * Reconstruye una medida guardada con writeMeasure(). Las medidas sin parámetros se crean
+     * con su constructor sin argumentos, que tiene que dar el mismo nombre.
+     */
+    private static Measure readMeasure(Reader in) throws IOException {
+        String className = in.readString();
+        String name = in.readString();
+        double[] parameters = new double[in.readInt()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = Double.longBitsToDouble(in.readLong());
+        }
+        Measure measure;
+        if (className.equals(Quantile.class.getName()) && parameters.length == 2) {
+            measure = new Quantile(name, parameters[0], (int) parameters[1]);
+        } else if (className.equals(ApproxDistinctCount.class.getName()) && parameters.length == 1) {
+            measure = new ApproxDistinctCount(name, (int) parameters[0]);
+        } else {
+            try {
+                measure = (Measure) Class.forName(className).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IOException("Cannot create measure " + className, e);
+            }
+        }
+        if (!measure.getName().equals(name)) {
+            throw new IOException("Cannot restore measure " + name + " of " + className);
+        }
+        return measure;
+    }
+
+    /**
+     * Escritura secuencial del archivo a través de un buffer directo.
+     */
+    private static final class Writer implements AutoCloseable {
+        private FileChannel channel;
+        private ByteBuffer buffer;
+        private long written;
+
+        Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+            );
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            this.written = 0;
+        }
+
+        void writeByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+        }
+
+        void writeStrings(List<String> values) throws IOException {
+            writeInt(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        void writeInts(int[] values, int length) throws IOException {
+            align();
+            int offset = 0;
+            while (offset < length) {
+                ensure(4);
+                int count = Math.min(length - offset, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * 4);
+                offset += count;
+            }
+        }
+
+        void writeLongs(long[] values) throws IOException {
+            align();
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(8);
+                int count = Math.min(values.length - offset, buffer.remaining() / 8);
+                buffer.asLongBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * 8);
+                offset += count;
+            }
+        }
+
+        void writeDoubles(double[] values, int length) throws IOException {
+            align();
+            int offset = 0;
+            while (offset < length) {
+                ensure(8);
+                int count = Math.min(length - offset, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, offset, count);
+                buffer.position(buffer.position() + count * 8);
+                offset += count;
+            }
+        }
+
+        /**
+         * Completa con ceros hasta la siguiente posición múltiplo de 8.
+         */
+        private void align() throws IOException {
+            while ((written + buffer.position()) % 8 != 0) {
+                writeByte((byte) 0);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /**
+     * Lectura secuencial del archivo mapeado en memoria, por ventanas de hasta WINDOW bytes.
+     */
+    private static final class Reader implements AutoCloseable {
+        private FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;   // Posición del archivo donde empieza la ventana
+
+        Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.windowStart = 0;
+            map(0);
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return window.get();
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return window.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(8);
+            return window.getLong();
+        }
+
+        String readString() throws IOException {
+            byte[] bytes = new byte[readInt()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = readByte();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<String> readStrings() throws IOException {
+            int count = readInt();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        int[] readInts(int length) throws IOException {
+            align();
+            int[] values = new int[length];
+            int offset = 0;
+            while (offset < length) {
+                ensure(4);
+                int count = Math.min(length - offset, window.remaining() / 4);
+                window.asIntBuffer().get(values, offset, count);
+                window.position(window.position() + count * 4);
+                offset += count;
+            }
+            return values;
+        }
+
+        long[] readLongs(int length) throws IOException {
+            align();
+            long[] values = new long[length];
+            int offset = 0;
+            while (offset < length) {
+                ensure(8);
+                int count = Math.min(length - offset, window.remaining() / 8);
+                window.asLongBuffer().get(values, offset, count);
+                window.position(window.position() + count * 8);
+                offset += count;
+            }
+            return values;
+        }
+
+        double[] readDoubles(int length) throws IOException {
+            align();
+            double[] values = new double[length];
+            int offset = 0;
+            while (offset < length) {
+                ensure(8);
+                int count = Math.min(length - offset, window.remaining() / 8);
+                window.asDoubleBuffer().get(values, offset, count);
+                window.position(window.position() + count * 8);
+                offset += count;
+            }
+            return values;
+        }
+
+        private void align() throws IOException {
+            long position = windowStart + window.position();
+            long padding = (8 - position % 8) % 8;
+            for (long i = 0; i < padding; i++) {
+                readByte();
+            }
+        }
+
+        /**
+         * Vuelve a mapear desde la posición actual si en la ventana quedan menos de bytes.
+         */
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (channel.size() - position < bytes) {
+                    throw new IOException("Unexpected end of cube snapshot");
+                }
+                map(position);
+            }
+        }
+
+        private void map(long position) throws IOException {
+            long length = Math.min(WINDOW, channel.size() - position);
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            this.window.order(ByteOrder.LITTLE_ENDIAN);
+            this.windowStart = position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
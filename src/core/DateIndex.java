@@ -0,0 +1,108 @@
+package core;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Índice ordenado de un nivel de fechas: el día epoch (LocalDate.toEpochDay()) de cada fila de
+ * la dimensión, de menor a mayor, junto con su fila y su id de la PK. Un rango de fechas se
+ * resuelve con dos búsquedas binarias, que dan el intervalo de posiciones dentro del rango.
+ * Las filas sin fecha (por ejemplo, los miembros inferidos) no entran en el índice.
+ */
+final class DateIndex {
+    private int[] days;     // Día epoch de cada posición, ascendente
+    private int[] rows;     // Fila de la dimensión de cada posición
+    private int[] ids;      // Id de la PK de cada posición
+
+    private DateIndex(int[] days, int[] rows, int[] ids) {
+        this.days = days;
+        this.rows = rows;
+        this.ids = ids;
+    }
+
+    /**
+     * Arma el índice del nivel, o devuelve null si el nivel no tiene fechas.
+     */
+    static DateIndex build(Level level, Level idLevel) {
+        long[] entries = new long[level.size()];
+        int count = 0;
+        for (int row = 0; row < level.size(); row++) {
+            Object member = level.get(row);
+            if (member instanceof LocalDate) {
+                // Día en los 32 bits altos y fila en los bajos: ordenar los long ordena por día
+                long day = Math.toIntExact(((LocalDate) member).toEpochDay());
+                entries[count++] = (day << 32) | row;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        entries = Arrays.copyOf(entries, count);
+        Arrays.sort(entries);
+        int[] days = new int[count];
+        int[] rows = new int[count];
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            days[i] = (int) (entries[i] >> 32);
+            rows[i] = (int) entries[i];
+            ids[i] = (Integer) idLevel.get(rows[i]);
+        }
+        return new DateIndex(days, rows, ids);
+    }
+
+    /**
+     * Devuelve la fecha más reciente del índice.
+     */
+    LocalDate last() {
+        return LocalDate.ofEpochDay(days[days.length - 1]);
+    }
+
+    /**
+     * Marca las filas de la dimensión con fecha entre from y to, ambos incluidos.
+     * Con null, el extremo queda abierto.
+     *
+     * @param rowCount Cantidad de filas de la dimensión
+     */
+    boolean[] rowsBetween(LocalDate from, LocalDate to, int rowCount) {
+        int[] interval = interval(from, to);
+        boolean[] selected = new boolean[rowCount];
+        for (int i = interval[0]; i < interval[1]; i++) {
+            selected[rows[i]] = true;
+        }
+        return selected;
+    }
+
+    /**
+     * Devuelve los ids de la PK con fecha entre from y to, ordenados por fecha.
+     */
+    int[] idsBetween(LocalDate from, LocalDate to) {
+        int[] interval = interval(from, to);
+        return Arrays.copyOfRange(ids, interval[0], interval[1]);
+    }
+
+    /**
+     * Devuelve el intervalo [inicio, fin) de posiciones con fecha entre from y to.
+     */
+    private int[] interval(LocalDate from, LocalDate to) {
+        int start = from == null ? 0 : lowerBound(from.toEpochDay());
+        int end = to == null ? days.length : lowerBound(to.toEpochDay() + 1);
+        return new int[] { start, Math.max(start, end) };
+    }
+
+    /**
+     * Primera posición con día mayor o igual al indicado (o la cantidad de posiciones si no hay).
+     */
+    private int lowerBound(long day) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -1,6 +1,8 @@
 package core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,6 +10,14 @@ import java.util.Map;
 /**
  * Dimension de un cubo OLAP.
  * Es responsable por sus niveles, la jerarquia relacionada y su primary key.
+ *
+ * Cada id de la PK se ubica en O(1) con un mapa hash id -> fila. Los miembros se pueden agregar
+ * o actualizar en tiempo de ejecución con appendMembers(), que devuelve una versión nueva de la
+ * dimensión. Si se define un miembro desconocido, los ids de los hechos que no existen en la
+ * dimensión se agregan como miembros inferidos con ese valor en todos los niveles.
+ *
+ * Los niveles de fechas tienen además un índice ordenado por fecha (DateIndex), para resolver
+ * rangos de fechas con búsquedas binarias.
  */
 public class Dimension {
     private String name;                // Nombre dado a la dimensión por el/la usuario/a.
@@ -15,7 +25,12 @@ public class Dimension {
     private Map<String, Level> levels;  // Mapa de niveles de la dimensión
     private List<String> hierarchy;     // Lista que define la jerarquía de niveles
     private int currentLevel;           // Nivel actual de la dimensión. Trabaja con hierarchy.
-
+    private Map<String, int[]> memberOffsets;   // Por nivel, inicio de los ids de cada miembro
+    private Map<String, int[]> memberRows;      // Por nivel, filas agrupadas por miembro
+    private Map<String, int[]> memberIds;       // Por nivel, ids de la PK agrupados por miembro
+    private IntMap rowsById;                    // id de la PK -> fila de los niveles
+    private Map<String, DateIndex> dateIndexes; // Por nivel de fechas, índice ordenado por fecha
+    private String unknownMember;               // Valor de los miembros inferidos; null si no se usan
 
     public Dimension(String name, String idKey, Map<String, Level> levels, List<String> hierarchy) {
         this.name = name;
@@ -23,6 +38,7 @@ public class Dimension {
         this.levels = levels;
         this.hierarchy = hierarchy;
         this.currentLevel = 0;
+        buildMemberIndex();
     }
 
     /**
@@ -34,14 +50,152 @@ public class Dimension {
         this.levels = new HashMap<>();
         this.hierarchy = hierarchy;
         this.currentLevel = currentLevel;
+        this.memberOffsets = new HashMap<>();
+        this.memberRows = new HashMap<>();
+        this.memberIds = new HashMap<>();
+        this.rowsById = new IntMap(0);
+        this.dateIndexes = new HashMap<>();
+    }
+
+    /**
+     * Devuelve una copia liviana de la dimensión con otro nivel activo.
+     * Comparte los niveles y los índices invertidos; no los copia ni los modifica.
+     */
+    Dimension withLevel(int level) {
+        if (level < 0 || level >= hierarchy.size()) {
+            throw new IllegalArgumentException("Level out of range: " + level);
+        }
+        Dimension dimension = new Dimension(this.name, this.idKey, this.hierarchy, level);
+        dimension.levels = this.levels;
+        dimension.memberOffsets = this.memberOffsets;
+        dimension.memberRows = this.memberRows;
+        dimension.memberIds = this.memberIds;
+        dimension.rowsById = this.rowsById;
+        dimension.dateIndexes = this.dateIndexes;
+        dimension.unknownMember = this.unknownMember;
+        return dimension;
+    }
+
+    /**
+     * Devuelve una copia liviana de la dimensión que agrupa los ids desconocidos de los hechos
+     * en el miembro indicado (ver withUnknownIds()). Con null, esos ids se ignoran al agrupar.
+     */
+    public Dimension withUnknownMember(String unknownMember) {
+        Dimension dimension = withLevel(this.currentLevel);
+        dimension.unknownMember = unknownMember;
+        return dimension;
+    }
+
+    /**
+     * Devuelve el valor de los miembros inferidos para ids desconocidos, o null si no se usan.
+     */
+    public String getUnknownMember() {
+        return this.unknownMember;
+    }
+
+    /**
+     * Devuelve la fila de los niveles que corresponde al id, o -1 si el id no existe. Es O(1).
+     */
+    public int getRow(int id) {
+        return rowsById.get(id);
+    }
+
+    public boolean hasId(int id) {
+        return rowsById.get(id) != -1;
+    }
+
+    /**
+     * Devuelve una versión nueva de la dimensión con los miembros indicados.
+     * Los ids nuevos se agregan al final; los que ya existen se actualizan con los valores nuevos
+     * (por ejemplo, un miembro inferido cuando llegan sus datos reales). Cada id se cruza con los
+     * existentes mediante el mapa hash id -> fila. Esta dimensión no cambia.
+     *
+     * @param columns Mapa de nombre de nivel (incluida la PK) a valores, uno por miembro
+     */
+    public Dimension appendMembers(Map<String, List<Object>> columns) {
+        List<Object> ids = columns.get(idKey);
+        if (ids == null) {
+            throw new IllegalArgumentException("The id key is missing: " + idKey);
+        }
+        List<String> levelNames = new ArrayList<>();
+        levelNames.add(idKey);
+        levelNames.addAll(hierarchy);
+        for (String levelName : levelNames) {
+            if (!columns.containsKey(levelName) || columns.get(levelName).size() != ids.size()) {
+                throw new IllegalArgumentException("Missing or incomplete level: " + levelName);
+            }
+        }
+
+        int size = getIdLevel().size();
+        int[] targets = new int[ids.size()];
+        IntMap added = new IntMap(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            int id = (Integer) ids.get(i);
+            int row = rowsById.get(id);
+            if (row == -1) {
+                row = added.get(id);
+            }
+            if (row == -1) {
+                row = size++;
+                added.put(id, row);
+            }
+            targets[i] = row;
+        }
+
+        Map<String, Level> newLevels = new HashMap<>();
+        for (String levelName : levelNames) {
+            List<Object> elements = new ArrayList<>(levels.get(levelName).getElements());
+            while (elements.size() < size) {
+                elements.add(null);
+            }
+            List<Object> values = columns.get(levelName);
+            for (int i = 0; i < targets.length; i++) {
+                elements.set(targets[i], values.get(i));
+            }
+            newLevels.put(levelName, new Level(levelName, elements));
+        }
+        Dimension dimension = new Dimension(name, idKey, newLevels, hierarchy);
+        dimension.currentLevel = this.currentLevel;
+        dimension.unknownMember = this.unknownMember;
+        return dimension;
+    }
+
+    /**
+     * Si la dimensión tiene miembro desconocido, devuelve una versión nueva donde cada id del
+     * índice de hechos que no existe en la dimensión es un miembro inferido, con el miembro
+     * desconocido en todos los niveles. Así esas filas se agrupan en ese miembro en lugar de
+     * quedar afuera. Si no hay ids desconocidos (o no se usa), devuelve esta misma dimensión.
+     */
+    public Dimension withUnknownIds(BitmapIndex index) {
+        if (unknownMember == null) {
+            return this;
+        }
+        List<Integer> unknown = new ArrayList<>();
+        for (int id : index.getIds(idKey)) {
+            if (!hasId(id)) {
+                unknown.add(id);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return this;
+        }
+        Collections.sort(unknown);
+        Map<String, List<Object>> columns = new HashMap<>();
+        columns.put(idKey, new ArrayList<>(unknown));
+        for (String level : hierarchy) {
+            columns.put(level, Collections.nCopies(unknown.size(), unknownMember));
+        }
+        return appendMembers(columns);
     }
 
     public void addLevel(Level level) {
         levels.put(level.getName(), level);
+        buildMemberIndex();
     }
 
     public void addLevels(Map<String, Level> levels) {
         this.levels = levels;
+        buildMemberIndex();
     }
 
     public List<String> getLevels() {
@@ -56,6 +210,10 @@ public class Dimension {
         return this.idKey;
     }
 
+    /**
+     * Cambia el nivel activo de esta instancia. Cube no lo usa: cada vista del cubo
+     * cambia de nivel con copias livianas (withLevel()), sin modificar las dimensiones compartidas.
+     */
     public void setCurrentLevel(int level) {
         this.currentLevel = level;
     }
@@ -68,6 +226,43 @@ public class Dimension {
         return levels.get(hierarchy.get(currentLevel));
     }
 
+    /**
+     * Devuelve el nivel con el nombre indicado, o null si no existe.
+     */
+    public Level getLevel(String levelName) {
+        return levels.get(levelName);
+    }
+
+    /**
+     * Devuelve el nivel que guarda la PK de la dimensión.
+     */
+    public Level getIdLevel() {
+        return levels.get(idKey);
+    }
+
+    /**
+     * Devuelve el primer nivel de fechas de la jerarquía, o null si la dimensión no tiene.
+     */
+    public String getDateLevel() {
+        for (String levelName : hierarchy) {
+            if (dateIndexes.containsKey(levelName)) {
+                return levelName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve el índice ordenado del primer nivel de fechas de la jerarquía.
+     */
+    DateIndex getDateIndex() {
+        String levelName = getDateLevel();
+        if (levelName == null) {
+            throw new IllegalArgumentException("The dimension has no DATE level: " + name);
+        }
+        return dateIndexes.get(levelName);
+    }
+
     @Override
     public String toString() {
         return "Dimension [name =" + name + ", idKey =" + idKey
@@ -81,20 +276,56 @@ public class Dimension {
      */
     public List<Integer> getIdList(String value) {
         List<Integer> ids = new ArrayList<>();
-        String levelName = hierarchy.get(currentLevel);
-        List<Object> elements = levels.get(levelName).getElements();
-        for (int i = 0; i < elements.size(); i++) {
-            if (elements.get(i).toString().equals(value)) {
-                ids.add((Integer) levels.get(idKey).getElements().get(i));
-            }
+        for (int id : getIds(value)) {
+            ids.add(id);
         }
         return ids;
     }
 
+    /**
+     * Igual que getIdList(), pero sin boxing.
+     * Usa el índice invertido del nivel activo: un acceso al diccionario y una copia del rango.
+     */
+    public int[] getIds(String value) {
+        String levelName = hierarchy.get(currentLevel);
+        int code = levels.get(levelName).getCode(value);
+        if (code == -1 || !memberIds.containsKey(levelName)) {
+            return new int[0];
+        }
+        int[] offsets = memberOffsets.get(levelName);
+        return Arrays.copyOfRange(memberIds.get(levelName), offsets[code], offsets[code + 1]);
+    }
+
     /**
      * Trabaja con el getNewDimensions() del cubo para reducir/filtar la dimensión.
      */
     public Dimension diceDimension(List<String> values) {
+        /**
+         * Junta las filas de los miembros buscados en el nivel activo, usando el índice invertido.
+         */
+        String levelName = hierarchy.get(currentLevel);
+        Level activeLevel = levels.get(levelName);
+        int[] offsets = memberOffsets.get(levelName);
+        int[] levelRows = memberRows.get(levelName);
+        boolean[] selected = new boolean[activeLevel.size()];
+        for (String value : values) {
+            int code = activeLevel.getCode(value);
+            if (code != -1) {
+                for (int i = offsets[code]; i < offsets[code + 1]; i++) {
+                    selected[levelRows[i]] = true;
+                }
+            }
+        }
+        return diceRows(selected);
+    }
+
+    /**
+     * Devuelve una dimensión reducida a las filas indicadas (por ejemplo, las que pasan un Filter),
+     * con el mismo nivel activo.
+     *
+     * @param selected Por cada fila de los niveles, si se conserva
+     */
+    Dimension diceRows(boolean[] selected) {
         Dimension newDimension = new Dimension(
             this.name,
             this.idKey,
@@ -102,29 +333,62 @@ public class Dimension {
             this.currentLevel
         ); // Clonar la dimensión actual sin el contenido de los niveles.
 
+        int[] rows = new int[selected.length];
+        int count = 0;
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                rows[count++] = i;
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
 
         Map<String, Level> newLevels = new HashMap<>();
-        newLevels.put(this.idKey, new Level(this.idKey));
-        for (String levelName : hierarchy) {
-            newLevels.put(levelName, new Level(levelName));
+        newLevels.put(this.idKey, levels.get(idKey).subset(rows));
+        for (String level : hierarchy) {
+            newLevels.put(level, levels.get(level).subset(rows));
         }
 
-        String levelName = hierarchy.get(currentLevel);
-        List<Object> elements = levels.get(levelName).getElements();
+        newDimension.addLevels(newLevels);
+        newDimension.unknownMember = this.unknownMember;
+        return newDimension;
+    }
 
-        /**
-         * Recorre los elementos del nivel activo y guarda los elementos relacionados.
-         */
-        for (int i = 0; i < elements.size(); i++) {
-            if (values.contains(elements.get(i).toString())) {
-                newLevels.get(idKey).getElements().add(levels.get(idKey).getElements().get(i));
-                for (String level : hierarchy) {
-                    newLevels.get(level).getElements().add(levels.get(level).getElements().get(i));
-                }
+    /**
+     * Arma, para cada nivel de la jerarquía, el índice invertido miembro -> ids de la PK,
+     * el mapa hash id -> fila y el índice ordenado de los niveles de fechas.
+     * Se calcula una sola vez al cargar la dimensión.
+     */
+    private void buildMemberIndex() {
+        this.memberOffsets = new HashMap<>();
+        this.memberRows = new HashMap<>();
+        this.memberIds = new HashMap<>();
+        this.dateIndexes = new HashMap<>();
+        Level idLevel = levels.get(idKey);
+        if (idLevel == null) {
+            this.rowsById = new IntMap(0);
+            return;
+        }
+        this.rowsById = new IntMap(idLevel.size());
+        for (int row = 0; row < idLevel.size(); row++) {
+            rowsById.put((Integer) idLevel.get(row), row);
+        }
+        for (String levelName : hierarchy) {
+            Level level = levels.get(levelName);
+            if (level == null) {
+                continue;
+            }
+            int[][] index = level.rowsByMember();
+            int[] ids = new int[index[1].length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = (Integer) idLevel.get(index[1][i]);
+            }
+            memberOffsets.put(levelName, index[0]);
+            memberRows.put(levelName, index[1]);
+            memberIds.put(levelName, ids);
+            DateIndex dateIndex = DateIndex.build(level, idLevel);
+            if (dateIndex != null) {
+                dateIndexes.put(levelName, dateIndex);
             }
         }
-
-        newDimension.addLevels(newLevels);
-        return newDimension;
     }
 }
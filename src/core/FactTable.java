@@ -0,0 +1,201 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tabla de hechos de un cubo OLAP guardada por columnas.
+ * Cada foreign key es una columna de int y cada hecho una columna de double,
+ * así una fila de hechos ocupa unos pocos bytes en lugar de un objeto por fila.
+ *
+ * append() devuelve una versión nueva de la tabla con más filas. Las versiones comparten los
+ * arreglos mientras haya lugar: las filas nuevas se escriben después del final de la versión
+ * anterior, que nunca lee más allá de su size(), así sus lectores siguen viendo los mismos datos.
+ */
+public class FactTable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private List<String> foreignKeys;   // Nombres de las foreign keys, en orden de columna
+    private List<String> facts;         // Nombres de los hechos, en orden de columna
+    private int[][] keyColumns;         // Una columna por foreign key
+    private double[][] factColumns;     // Una columna por hecho
+    private int size;                   // Cantidad de filas cargadas
+    private AtomicInteger written;      // Filas escritas en los arreglos, compartido entre versiones
+
+    public FactTable(List<String> foreignKeys, List<String> facts) {
+        this(foreignKeys, facts, INITIAL_CAPACITY);
+    }
+
+    public FactTable(List<String> foreignKeys, List<String> facts, int capacity) {
+        this.foreignKeys = new ArrayList<>(foreignKeys);
+        this.facts = new ArrayList<>(facts);
+        this.keyColumns = new int[foreignKeys.size()][Math.max(capacity, 1)];
+        this.factColumns = new double[facts.size()][Math.max(capacity, 1)];
+        this.size = 0;
+        this.written = new AtomicInteger(0);
+    }
+
+    /**
+     * Constructor para columnas ya cargadas (por ejemplo, al cargar un cubo persistido).
+     */
+    FactTable(
+        List<String> foreignKeys,
+        List<String> facts,
+        int[][] keyColumns,
+        double[][] factColumns,
+        int size
+    ) {
+        this.foreignKeys = new ArrayList<>(foreignKeys);
+        this.facts = new ArrayList<>(facts);
+        this.keyColumns = keyColumns;
+        this.factColumns = factColumns;
+        this.size = size;
+        this.written = new AtomicInteger(size);
+    }
+
+    /**
+     * Agrega una fila a la tabla.
+     * Los arreglos deben respetar el orden de getForeignKeys() y getFacts().
+     */
+    public void addRow(int[] keys, double[] values) {
+        reserve(1);
+        for (int k = 0; k < keyColumns.length; k++) {
+            keyColumns[k][size] = keys[k];
+        }
+        for (int f = 0; f < factColumns.length; f++) {
+            factColumns[f][size] = values[f];
+        }
+        size++;
+    }
+
+    /**
+     * Crea una tabla con rows filas en cero, para completarla con setRow(). Así varios hilos pueden
+     * cargar rangos distintos de filas directamente en las mismas columnas, ya del tamaño final.
+     */
+    public static FactTable withRows(List<String> foreignKeys, List<String> facts, int rows) {
+        FactTable table = new FactTable(foreignKeys, facts, rows);
+        table.size = rows;
+        table.written.set(rows);
+        return table;
+    }
+
+    /**
+     * Escribe los valores de una fila ya existente (ver withRows()).
+     * Los arreglos deben respetar el orden de getForeignKeys() y getFacts().
+     */
+    public void setRow(int row, int[] keys, double[] values) {
+        if (row < 0 || row >= size) {
+            throw new IllegalArgumentException("Row " + row + " out of range");
+        }
+        for (int k = 0; k < keyColumns.length; k++) {
+            keyColumns[k][row] = keys[k];
+        }
+        for (int f = 0; f < factColumns.length; f++) {
+            factColumns[f][row] = values[f];
+        }
+    }
+
+    /**
+     * Devuelve una versión nueva de la tabla con las filas de rows agregadas al final.
+     * Esta versión no cambia: sigue teniendo las mismas filas y valores.
+     * Las columnas de rows se ubican por nombre; deben ser las mismas que las de esta tabla.
+     */
+    public FactTable append(FactTable rows) {
+        if (!new HashSet<>(rows.foreignKeys).equals(new HashSet<>(foreignKeys))
+                || !new HashSet<>(rows.facts).equals(new HashSet<>(facts))) {
+            throw new IllegalArgumentException("The tables do not have the same columns");
+        }
+        FactTable result = new FactTable(
+            foreignKeys, facts, keyColumns.clone(), factColumns.clone(), size
+        );
+        result.written = this.written;
+        result.reserve(rows.size);
+        for (int k = 0; k < keyColumns.length; k++) {
+            int[] source = rows.getKeyColumn(foreignKeys.get(k));
+            System.arraycopy(source, 0, result.keyColumns[k], size, rows.size);
+        }
+        for (int f = 0; f < factColumns.length; f++) {
+            double[] source = rows.getFactColumn(facts.get(f));
+            System.arraycopy(source, 0, result.factColumns[f], size, rows.size);
+        }
+        result.size += rows.size;
+        return result;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public List<String> getForeignKeys() {
+        return this.foreignKeys;
+    }
+
+    public List<String> getFacts() {
+        return this.facts;
+    }
+
+    /**
+     * Devuelve la columna de la foreign key indicada.
+     * El arreglo puede ser más largo que size(); sólo las primeras size() posiciones son válidas.
+     */
+    public int[] getKeyColumn(String key) {
+        int index = foreignKeys.indexOf(key);
+        if (index == -1) {
+            throw new IllegalArgumentException("Foreign key not found");
+        }
+        return keyColumns[index];
+    }
+
+    /**
+     * Devuelve la columna del hecho indicado.
+     * El arreglo puede ser más largo que size(); sólo las primeras size() posiciones son válidas.
+     */
+    public double[] getFactColumn(String fact) {
+        int index = facts.indexOf(fact);
+        if (index == -1) {
+            throw new IllegalArgumentException("Fact not found");
+        }
+        return factColumns[index];
+    }
+
+    @Override
+    public String toString() {
+        return "FactTable [" + size + " rows. Keys: " + foreignKeys + ". Facts: " + facts + "]";
+    }
+
+    private int capacity() {
+        return keyColumns.length > 0 ? keyColumns[0].length : factColumns[0].length;
+    }
+
+    /**
+     * Reserva lugar para count filas después de la última fila de esta versión.
+     * Si no hay capacidad, o si otra versión ya escribió después de esta (los arreglos no son
+     * sólo suyos), copia las columnas a arreglos nuevos antes de escribir.
+     */
+    private void reserve(int count) {
+        long needed = (long) size + count;
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many rows");
+        }
+        if (needed <= capacity() && written.compareAndSet(size, (int) needed)) {
+            return;
+        }
+        grow((int) Math.max(needed, Math.min((long) capacity() * 2, Integer.MAX_VALUE)));
+        written = new AtomicInteger((int) needed);
+    }
+
+    /**
+     * Copia todas las columnas a arreglos de la capacidad indicada.
+     */
+    private void grow(int newCapacity) {
+        for (int k = 0; k < keyColumns.length; k++) {
+            keyColumns[k] = Arrays.copyOf(keyColumns[k], newCapacity);
+        }
+        for (int f = 0; f < factColumns.length; f++) {
+            factColumns[f] = Arrays.copyOf(factColumns[f], newCapacity);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package core;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Expresión de filtro sobre los miembros del nivel activo de las dimensiones (ver Cube.filter()).
+ *
+ * Las hojas seleccionan miembros de una dimensión: in() y notIn() por valor, y between() por
+ * rango en niveles de enteros o fechas. dateBetween(), lastDays() y yearToDate() filtran por el
+ * nivel de fechas de la dimensión (sin importar el nivel activo) usando su índice ordenado. Las hojas se combinan con and() y or() entre cualquier
+ * cantidad de dimensiones. Los valores se comparan con el toString() de los miembros, igual que
+ * en dice().
+ *
+ * Ejemplo: and(in("puntos_venta", "California"), between("fechas", "2019", "2020"),
+ * notIn("productos", "Accessories"))
+ */
+public abstract class Filter {
+
+    Filter() {
+    }
+
+    /**
+     * Miembros del nivel activo de la dimensión con alguno de los valores.
+     */
+    public static Filter in(String dimension, String... values) {
+        return new Members(dimension, Members.IN, values, null, null);
+    }
+
+    /**
+     * Miembros del nivel activo de la dimensión con un valor distinto de todos los indicados.
+     */
+    public static Filter notIn(String dimension, String... values) {
+        return new Members(dimension, Members.NOT_IN, values, null, null);
+    }
+
+    /**
+     * Miembros del nivel activo (de enteros o fechas) entre from y to, ambos incluidos.
+     * Con null, el extremo queda abierto. Las fechas se escriben como 2019-03-31.
+     */
+    public static Filter between(String dimension, String from, String to) {
+        return new Members(dimension, Members.BETWEEN, new String[0], from, to);
+    }
+
+    /**
+     * Miembros con fecha entre from y to, ambos incluidos, en el primer nivel de fechas de la
+     * dimensión. Con null, el extremo queda abierto.
+     */
+    public static Filter dateBetween(String dimension, LocalDate from, LocalDate to) {
+        return new Dates(dimension, Dates.RANGE, from, to, 0);
+    }
+
+    /**
+     * Miembros de los últimos días hasta la fecha más reciente de la dimensión, incluida.
+     */
+    public static Filter lastDays(String dimension, int days) {
+        return lastDays(dimension, days, null);
+    }
+
+    /**
+     * Miembros de los últimos días hasta until, incluido (lastDays(d, 1, until) es sólo until).
+     */
+    public static Filter lastDays(String dimension, int days, LocalDate until) {
+        if (days < 1) {
+            throw new IllegalArgumentException("Days must be at least 1");
+        }
+        return new Dates(dimension, Dates.LAST_DAYS, null, until, days);
+    }
+
+    /**
+     * Miembros desde el 1 de enero hasta la fecha más reciente de la dimensión, incluida.
+     */
+    public static Filter yearToDate(String dimension) {
+        return yearToDate(dimension, null);
+    }
+
+    /**
+     * Miembros desde el 1 de enero del año de until hasta until, incluido.
+     */
+    public static Filter yearToDate(String dimension, LocalDate until) {
+        return new Dates(dimension, Dates.YEAR_TO_DATE, null, until, 0);
+    }
+
+    /**
+     * Filas que cumplen todos los filtros. Sin filtros, todas las filas.
+     */
+    public static Filter and(Filter... filters) {
+        return new Junction(true, Arrays.asList(filters));
+    }
+
+    /**
+     * Filas que cumplen alguno de los filtros.
+     */
+    public static Filter or(Filter... filters) {
+        if (filters.length == 0) {
+            throw new IllegalArgumentException("At least one filter is required");
+        }
+        return new Junction(false, Arrays.asList(filters));
+    }
+
+    /**
+     * Traduce el filtro a un término del plan, resolviendo las hojas contra las dimensiones de
+     * la vista (sin tocar las filas de hechos).
+     */
+    abstract FilterPlan.Term plan(Map<String, Dimension> dimensions);
+
+    /**
+     * Hoja: predicado sobre los miembros del nivel activo de una dimensión.
+     */
+    static final class Members extends Filter {
+        static final int IN = 0;
+        static final int NOT_IN = 1;
+        static final int BETWEEN = 2;
+
+        private String dimension;
+        private int operator;
+        private String[] values;    // Valores de IN / NOT IN
+        private String from;        // Extremos de BETWEEN; null si están abiertos
+        private String to;
+
+        Members(String dimension, int operator, String[] values, String from, String to) {
+            this.dimension = dimension;
+            this.operator = operator;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        FilterPlan.Term plan(Map<String, Dimension> dimensions) {
+            Dimension dim = dimensions.get(dimension);
+            if (dim == null) {
+                throw new IllegalArgumentException("Dimension not found: " + dimension);
+            }
+            Level level = dim.getActiveLevel();
+            boolean[] members = matchingMembers(level, dim.getUnknownMember());
+            int[] codes = level.getCodes();
+            boolean[] rows = new boolean[codes.length];
+            for (int row = 0; row < codes.length; row++) {
+                rows[row] = members[codes[row]];
+            }
+            return new FilterPlan.Leaf(dim, rows, canonical(dim));
+        }
+
+        /**
+         * Por cada miembro del diccionario del nivel, si cumple el predicado. El miembro
+         * desconocido no entra en ningún rango.
+         */
+        private boolean[] matchingMembers(Level level, String unknownMember) {
+            List<Object> dictionary = level.getMembers();
+            boolean[] members = new boolean[dictionary.size()];
+            if (operator == BETWEEN) {
+                for (int code = 0; code < members.length; code++) {
+                    Object member = dictionary.get(code);
+                    members[code] = !member.equals(unknownMember) && inRange(member, level.getName());
+                }
+                return members;
+            }
+            if (operator == NOT_IN) {
+                Arrays.fill(members, true);
+            }
+            for (String value : values) {
+                int code = level.getCode(value);
+                if (code != -1) {
+                    members[code] = operator == IN;
+                }
+            }
+            return members;
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private boolean inRange(Object member, String level) {
+            Comparable low;
+            Comparable high;
+            if (member instanceof Integer) {
+                low = from == null ? null : parseInteger(from);
+                high = to == null ? null : parseInteger(to);
+            } else if (member instanceof LocalDate) {
+                low = from == null ? null : parseDate(from);
+                high = to == null ? null : parseDate(to);
+            } else {
+                throw new IllegalArgumentException("Range filters need an INTEGER or DATE level: " + level);
+            }
+            return (low == null || low.compareTo(member) <= 0)
+                && (high == null || high.compareTo(member) >= 0);
+        }
+
+        private static Integer parseInteger(String value) {
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid integer bound: " + value);
+            }
+        }
+
+        private static LocalDate parseDate(String value) {
+            try {
+                return LocalDate.parse(value.trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid date bound: " + value);
+            }
+        }
+
+        /**
+         * Forma canónica de la hoja para la clave de caché. La de IN es la misma que la de un
+         * dice() con los mismos valores.
+         */
+        private String canonical(Dimension dim) {
+            String prefix = dim.getName() + '.' + dim.getActiveLevel().getName();
+            switch (operator) {
+                case IN:
+                    return prefix + '=' + new TreeSet<>(Arrays.asList(values));
+                case NOT_IN:
+                    return prefix + "!=" + new TreeSet<>(Arrays.asList(values));
+                default:
+                    return prefix + "~[" + (from == null ? "" : from) + ".." + (to == null ? "" : to) + "]";
+            }
+        }
+
+        @Override
+        public String toString() {
+            switch (operator) {
+                case IN:
+                    return dimension + " IN " + Arrays.toString(values);
+                case NOT_IN:
+                    return dimension + " NOT IN " + Arrays.toString(values);
+                default:
+                    return dimension + " BETWEEN " + from + " AND " + to;
+            }
+        }
+    }
+
+    /**
+     * Hoja: rango sobre el nivel de fechas de una dimensión, resuelto con su DateIndex.
+     */
+    static final class Dates extends Filter {
+        static final int RANGE = 0;
+        static final int LAST_DAYS = 1;
+        static final int YEAR_TO_DATE = 2;
+
+        private String dimension;
+        private int kind;
+        private LocalDate from;     // Sólo en RANGE; null si está abierto
+        private LocalDate to;       // Extremo final; null si está abierto o es la última fecha
+        private int days;           // Sólo en LAST_DAYS
+
+        Dates(String dimension, int kind, LocalDate from, LocalDate to, int days) {
+            this.dimension = dimension;
+            this.kind = kind;
+            this.from = from;
+            this.to = to;
+            this.days = days;
+        }
+
+        @Override
+        FilterPlan.Term plan(Map<String, Dimension> dimensions) {
+            Dimension dim = dimensions.get(dimension);
+            if (dim == null) {
+                throw new IllegalArgumentException("Dimension not found: " + dimension);
+            }
+            DateIndex index = dim.getDateIndex();
+            LocalDate low = from;
+            LocalDate high = to;
+            if (kind != RANGE) {
+                // Las fechas relativas se resuelven acá, así la forma canónica tiene fechas fijas
+                high = high == null ? index.last() : high;
+                low = kind == LAST_DAYS ? high.minusDays(days - 1) : high.withDayOfYear(1);
+            }
+            String canonical = dim.getName() + '.' + dim.getDateLevel()
+                + "~[" + (low == null ? "" : low) + ".." + (high == null ? "" : high) + "]";
+            return new FilterPlan.Leaf(
+                dim, index.rowsBetween(low, high, dim.getIdLevel().size()), canonical,
+                index.idsBetween(low, high)
+            );
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case LAST_DAYS:
+                    return dimension + " LAST " + days + " DAYS" + (to == null ? "" : " TO " + to);
+                case YEAR_TO_DATE:
+                    return dimension + " YEAR TO DATE" + (to == null ? "" : " " + to);
+                default:
+                    return dimension + " BETWEEN " + from + " AND " + to;
+            }
+        }
+    }
+
+    /**
+     * Combinación de filtros con AND o con OR.
+     */
+    static final class Junction extends Filter {
+        private boolean and;
+        private List<Filter> filters;
+
+        Junction(boolean and, List<Filter> filters) {
+            this.and = and;
+            this.filters = filters;
+        }
+
+        @Override
+        FilterPlan.Term plan(Map<String, Dimension> dimensions) {
+            List<FilterPlan.Term> terms = new ArrayList<>();
+            for (Filter filter : filters) {
+                terms.add(filter.plan(dimensions));
+            }
+            return and ? FilterPlan.and(terms) : FilterPlan.or(terms);
+        }
+
+        @Override
+        public String toString() {
+            List<String> parts = new ArrayList<>();
+            for (Filter filter : filters) {
+                parts.add(filter.toString());
+            }
+            return "(" + String.join(and ? " AND " : " OR ", parts) + ")";
+        }
+    }
+}
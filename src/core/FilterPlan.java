@@ -0,0 +1,248 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan de evaluación de un Filter.
+ *
+ * Las hojas se resuelven primero contra los miembros de las dimensiones: cada una queda como el
+ * conjunto de filas de la dimensión (ids de la PK) que la cumplen. Dentro de un AND las hojas de
+ * una misma dimensión se intersecan, y dentro de un OR se unen, todavía sin tocar las filas de
+ * hechos. Recién después se leen los bitmaps del índice: en un AND, los términos se evalúan del
+ * más selectivo al menos selectivo (según la cantidad de filas de sus ids en el índice) y la
+ * evaluación se corta apenas el resultado queda vacío.
+ */
+final class FilterPlan {
+
+    private FilterPlan() {
+    }
+
+    /**
+     * Término del plan: una hoja o una combinación de términos.
+     */
+    abstract static class Term {
+
+        /**
+         * Cantidad estimada de filas de hechos que cumplen el término, sin recorrer filas.
+         */
+        abstract long estimate(BitmapIndex index);
+
+        /**
+         * Devuelve las filas de selection que cumplen el término.
+         */
+        abstract Bitmap evaluate(BitmapIndex index, Bitmap selection);
+
+        abstract String canonical();
+    }
+
+    /**
+     * Hoja resuelta: las filas de una dimensión que cumplen uno o más predicados.
+     */
+    static final class Leaf extends Term {
+        private Dimension dimension;
+        private boolean[] rows;     // Por fila de la dimensión, si cumple
+        private String canonical;
+        private int[] ids;          // Ids de la PK de las filas que cumplen; se calcula al usarse
+
+        Leaf(Dimension dimension, boolean[] rows, String canonical) {
+            this.dimension = dimension;
+            this.rows = rows;
+            this.canonical = canonical;
+        }
+
+        /**
+         * Hoja con los ids ya calculados (por ejemplo, el intervalo de un índice de fechas).
+         */
+        Leaf(Dimension dimension, boolean[] rows, String canonical, int[] ids) {
+            this(dimension, rows, canonical);
+            this.ids = ids;
+        }
+
+        Dimension getDimension() {
+            return this.dimension;
+        }
+
+        boolean[] getRows() {
+            return this.rows;
+        }
+
+        @Override
+        long estimate(BitmapIndex index) {
+            long rowCount = 0;
+            for (int id : ids()) {
+                rowCount += index.get(dimension.getIdKey(), id).cardinality();
+            }
+            return rowCount;
+        }
+
+        @Override
+        Bitmap evaluate(BitmapIndex index, Bitmap selection) {
+            return selection.and(index.any(dimension.getIdKey(), ids()));
+        }
+
+        @Override
+        String canonical() {
+            return this.canonical;
+        }
+
+        private int[] ids() {
+            if (ids == null) {
+                Level idLevel = dimension.getIdLevel();
+                int count = 0;
+                int[] found = new int[rows.length];
+                for (int row = 0; row < rows.length; row++) {
+                    if (rows[row]) {
+                        found[count++] = (Integer) idLevel.get(row);
+                    }
+                }
+                ids = Arrays.copyOf(found, count);
+            }
+            return ids;
+        }
+
+        /**
+         * Combina dos hojas de la misma dimensión, con AND o con OR.
+         */
+        Leaf combine(Leaf other, boolean and) {
+            boolean[] combined = new boolean[rows.length];
+            for (int row = 0; row < rows.length; row++) {
+                combined[row] = and ? rows[row] && other.rows[row] : rows[row] || other.rows[row];
+            }
+            List<String> parts = new ArrayList<>();
+            parts.add(canonical);
+            parts.add(other.canonical);
+            Collections.sort(parts);
+            return new Leaf(dimension, combined, String.join(and ? " & " : " | ", parts));
+        }
+    }
+
+    /**
+     * Combinación de términos con AND o con OR.
+     */
+    static final class Node extends Term {
+        private boolean and;
+        private List<Term> terms;
+
+        Node(boolean and, List<Term> terms) {
+            this.and = and;
+            this.terms = terms;
+        }
+
+        List<Term> getTerms() {
+            return this.terms;
+        }
+
+        boolean isAnd() {
+            return this.and;
+        }
+
+        @Override
+        long estimate(BitmapIndex index) {
+            long result = and ? Long.MAX_VALUE : 0;
+            for (Term term : terms) {
+                long estimate = term.estimate(index);
+                result = and ? Math.min(result, estimate) : result + estimate;
+            }
+            return result;
+        }
+
+        @Override
+        Bitmap evaluate(BitmapIndex index, Bitmap selection) {
+            if (and) {
+                Bitmap result = selection;
+                for (Term term : bySelectivity(terms, index)) {
+                    if (result.isEmpty()) {
+                        break;
+                    }
+                    result = term.evaluate(index, result);
+                }
+                return result;
+            }
+            Bitmap[] parts = new Bitmap[terms.size()];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = terms.get(i).evaluate(index, selection);
+            }
+            return Bitmap.or(parts);
+        }
+
+        @Override
+        String canonical() {
+            List<String> parts = new ArrayList<>();
+            for (Term term : terms) {
+                parts.add(term.canonical());
+            }
+            Collections.sort(parts);
+            return "(" + String.join(and ? " AND " : " OR ", parts) + ")";
+        }
+    }
+
+    /**
+     * Combina términos con AND: aplana los AND anidados e interseca las hojas de cada dimensión.
+     */
+    static Term and(List<Term> terms) {
+        return combine(terms, true);
+    }
+
+    /**
+     * Combina términos con OR: aplana los OR anidados y une las hojas de cada dimensión.
+     */
+    static Term or(List<Term> terms) {
+        return combine(terms, false);
+    }
+
+    /**
+     * Devuelve los términos de un AND de más afuera, o el término solo si no es un AND.
+     */
+    static List<Term> conjuncts(Term term) {
+        if (term instanceof Node && ((Node) term).isAnd()) {
+            return ((Node) term).getTerms();
+        }
+        return Collections.singletonList(term);
+    }
+
+    private static Term combine(List<Term> terms, boolean and) {
+        Map<String, Leaf> leaves = new LinkedHashMap<>();
+        List<Term> others = new ArrayList<>();
+        List<Term> flat = new ArrayList<>();
+        for (Term term : terms) {
+            if (term instanceof Node && ((Node) term).isAnd() == and) {
+                flat.addAll(((Node) term).getTerms());
+            } else {
+                flat.add(term);
+            }
+        }
+        for (Term term : flat) {
+            if (term instanceof Leaf) {
+                Leaf leaf = (Leaf) term;
+                String name = leaf.getDimension().getName();
+                Leaf previous = leaves.get(name);
+                leaves.put(name, previous == null ? leaf : previous.combine(leaf, and));
+            } else {
+                others.add(term);
+            }
+        }
+        List<Term> combined = new ArrayList<>(leaves.values());
+        combined.addAll(others);
+        if (combined.size() == 1) {
+            return combined.get(0);
+        }
+        return new Node(and, combined);
+    }
+
+    private static List<Term> bySelectivity(List<Term> terms, BitmapIndex index) {
+        List<Term> sorted = new ArrayList<>(terms);
+        Map<Term, Long> estimates = new IdentityHashMap<>();
+        for (Term term : terms) {
+            estimates.put(term, term.estimate(index));
+        }
+        sorted.sort(Comparator.comparingLong(estimates::get));
+        return sorted;
+    }
+}
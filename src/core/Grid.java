@@ -0,0 +1,346 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import metrics.Measure;
+
+/**
+ * Resultado de un agrupamiento N-dimensional (ver GroupBy).
+ *
+ * Cada eje corresponde a una dimensión, con los miembros de su nivel activo ordenados.
+ * Cada celda de la grilla guarda el estado de la medida para las filas que le corresponden.
+ * Sólo las celdas con datos tienen una posición, asignada en orden de llegada. Si la grilla es
+ * chica, la posición de cada celda está en un arreglo denso; si no, en un mapa long -> int sin
+ * boxing (LongIntMap). Si la medida tiene estado de tamaño fijo (ver Measure.getStateSize()),
+ * los estados se guardan uno tras otro en un solo double[], sin un objeto por celda.
+ */
+public class Grid {
+    static final long DENSE_LIMIT = 1 << 20;    // Máxima cantidad de celdas para la grilla densa
+
+    private List<String> dimensions;    // Nombre de la dimensión de cada eje
+    private List<String> levels;        // Nombre del nivel activo de cada eje
+    private List<List<Object>> members; // Miembros ordenados de cada eje
+    private long[] strides;             // Salto del índice de celda por cada eje
+    private String fact;                // Hecho agregado
+    private Measure measure;            // Medida agregada
+    private int[] denseSlots;           // Índice de celda -> posición (-1 sin datos); null si es dispersa
+    private LongIntMap sparseSlots;     // Índice de celda -> posición; null si la grilla es densa
+    private long[] cells;               // Índice de celda de cada posición
+    private int size;                   // Posiciones usadas
+    private int stateSize;              // Tamaño fijo del estado de la medida; -1 si puede crecer
+    private double[] flatStates;        // Estados de tamaño fijo, stateSize valores por posición
+    private double[][] states;          // Estados que pueden crecer, uno por posición; null si son fijos
+    private double[] emptyState;        // Estado vacío, que se copia en cada posición nueva
+    private double emptyValue;          // Resultado de la medida para una celda sin filas
+
+    Grid(
+        List<String> dimensions,
+        List<String> levels,
+        List<List<Object>> members,
+        String fact,
+        Measure measure
+    ) {
+        this.dimensions = dimensions;
+        this.levels = levels;
+        this.members = members;
+        this.fact = fact;
+        this.measure = measure;
+        this.emptyState = measure.init();
+        this.emptyValue = measure.result(emptyState.clone());
+        this.strides = new long[members.size()];
+        long cells = 1;
+        for (int axis = members.size() - 1; axis >= 0; axis--) {
+            strides[axis] = cells;
+            cells *= Math.max(members.get(axis).size(), 1);
+        }
+        int capacity = 16;
+        if (cells <= DENSE_LIMIT) {
+            this.denseSlots = new int[(int) cells];
+            Arrays.fill(denseSlots, -1);
+        } else {
+            this.sparseSlots = new LongIntMap(capacity);
+        }
+        this.cells = new long[capacity];
+        this.size = 0;
+        this.stateSize = measure.getStateSize();
+        if (stateSize > 0) {
+            this.flatStates = new double[capacity * stateSize];
+        } else {
+            this.states = new double[capacity][];
+        }
+    }
+
+    /**
+     * Crea una grilla vacía con un eje por dimensión, con los miembros de su nivel activo ordenados.
+     */
+    static Grid of(List<Dimension> dimensions, String fact, Measure measure) {
+        List<String> names = new ArrayList<>();
+        List<String> levels = new ArrayList<>();
+        List<List<Object>> members = new ArrayList<>();
+        for (Dimension dimension : dimensions) {
+            Level level = dimension.getActiveLevel();
+            names.add(dimension.getName());
+            levels.add(level.getName());
+            members.add(sortedMembers(level, dimension.getUnknownMember()));
+        }
+        return new Grid(names, levels, members, fact, measure);
+    }
+
+    /**
+     * Miembros distintos del nivel, ordenados. El miembro desconocido (que puede ser de otro tipo
+     * que el resto, por ejemplo en un nivel de enteros) va al final.
+     */
+    private static List<Object> sortedMembers(Level level, String unknownMember) {
+        TreeSet<Object> sorted = new TreeSet<>();
+        boolean unknown = false;
+        for (Object member : level.getMembers()) {
+            if (unknownMember != null && unknownMember.equals(member)) {
+                unknown = true;
+            } else {
+                sorted.add(member);
+            }
+        }
+        List<Object> members = new ArrayList<>(sorted);
+        if (unknown) {
+            members.add(unknownMember);
+        }
+        return members;
+    }
+
+    public List<String> getDimensions() {
+        return this.dimensions;
+    }
+
+    public String getLevel(int axis) {
+        return levels.get(axis);
+    }
+
+    public List<Object> getMembers(int axis) {
+        return members.get(axis);
+    }
+
+    public String getFact() {
+        return this.fact;
+    }
+
+    public Measure getMeasure() {
+        return this.measure;
+    }
+
+    /**
+     * Devuelve el valor de la medida en la posición indicada de cada eje.
+     * Si la celda no tiene filas, se devuelve el resultado del estado vacío.
+     */
+    public double getValue(int... positions) {
+        return valueAt(cellIndex(positions));
+    }
+
+    /**
+     * Devuelve un recorrido por filas de toda la grilla (ver ResultCursor).
+     */
+    public ResultCursor cursor() {
+        return ResultCursor.of(this, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Devuelve un recorrido por filas de una página de la grilla: hasta limit filas a partir de
+     * la fila offset.
+     */
+    public ResultCursor cursor(long offset, long limit) {
+        return ResultCursor.of(this, offset, limit);
+    }
+
+    /**
+     * Devuelve el valor de la medida en el índice de celda indicado.
+     */
+    double valueAt(long cellIndex) {
+        int slot = slot(cellIndex, false);
+        if (slot == -1) {
+            return emptyValue;
+        }
+        return result(slot);
+    }
+
+    /**
+     * Devuelve la cantidad de celdas con datos (al menos una fila agregada).
+     */
+    public int getCellCount() {
+        return this.size;
+    }
+
+    /**
+     * Memoria aproximada, en bytes, que ocupan los estados de las celdas, el índice de posiciones
+     * y las listas de miembros de los ejes.
+     */
+    public long getMemoryBytes() {
+        long bytes = denseSlots != null ? 16 + 4L * denseSlots.length : sparseSlots.getMemoryBytes();
+        bytes += 16 + 8L * cells.length;
+        if (flatStates != null) {
+            bytes += 16 + 8L * flatStates.length;
+        } else {
+            bytes += 16 + 8L * states.length;
+            for (int slot = 0; slot < size; slot++) {
+                bytes += 16 + 8L * states[slot].length;
+            }
+        }
+        for (List<Object> axisMembers : members) {
+            bytes += 16 + 8L * axisMembers.size();
+        }
+        return bytes;
+    }
+
+    /**
+     * Recibe las celdas con datos de forEachCell().
+     */
+    interface CellVisitor {
+        void visit(long cellIndex, double value);
+    }
+
+    /**
+     * Recorre las celdas con datos, con su índice de celda y el resultado de la medida, sin
+     * armar ninguna lista intermedia.
+     */
+    void forEachCell(CellVisitor visitor) {
+        for (int slot = 0; slot < size; slot++) {
+            visitor.visit(cells[slot], result(slot));
+        }
+    }
+
+    long stride(int axis) {
+        return strides[axis];
+    }
+
+    /**
+     * Devuelve una grilla vacía con los mismos ejes, hecho y medida.
+     */
+    Grid emptyCopy() {
+        return new Grid(dimensions, levels, members, fact, measure);
+    }
+
+    /**
+     * Devuelve una grilla vacía con los mismos ejes, para otro hecho y medida.
+     */
+    Grid emptyCopy(String fact, Measure measure) {
+        return new Grid(dimensions, levels, members, fact, measure);
+    }
+
+    /**
+     * Vacía la grilla conservando la memoria reservada, para volver a usarla como parcial de
+     * otro bloque (ver GroupBy). Sólo recorre las celdas con datos, no la grilla completa.
+     */
+    void clear() {
+        if (denseSlots != null) {
+            for (int slot = 0; slot < size; slot++) {
+                denseSlots[(int) cells[slot]] = -1;
+            }
+        } else {
+            sparseSlots.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Combina en esta grilla los estados parciales de otra grilla con los mismos ejes.
+     * Sólo recorre las celdas con datos de la otra grilla.
+     */
+    void merge(Grid other) {
+        for (int otherSlot = 0; otherSlot < other.size; otherSlot++) {
+            int slot = slot(other.cells[otherSlot], true);
+            if (flatStates != null && other.flatStates != null) {
+                measure.merge(flatStates, slot * stateSize, other.flatStates, otherSlot * stateSize);
+            } else {
+                mergeState(slot, other.state(otherSlot));
+            }
+        }
+    }
+
+    /**
+     * Acumula un valor del hecho en la celda indicada.
+     */
+    void add(long cellIndex, double value) {
+        int slot = slot(cellIndex, true);
+        if (flatStates != null) {
+            measure.accumulate(flatStates, slot * stateSize, value);
+        } else {
+            states[slot] = measure.accumulate(states[slot], value);
+        }
+    }
+
+    /**
+     * Combina un estado parcial de la medida en la celda indicada. No modifica otherState.
+     */
+    void merge(long cellIndex, double[] otherState) {
+        mergeState(slot(cellIndex, true), otherState);
+    }
+
+    private void mergeState(int slot, double[] otherState) {
+        if (flatStates != null) {
+            measure.merge(flatStates, slot * stateSize, otherState, 0);
+        } else {
+            states[slot] = measure.merge(states[slot], otherState);
+        }
+    }
+
+    /**
+     * Devuelve el estado de la posición; si los estados son fijos, una copia.
+     */
+    private double[] state(int slot) {
+        if (flatStates != null) {
+            return Arrays.copyOfRange(flatStates, slot * stateSize, (slot + 1) * stateSize);
+        }
+        return states[slot];
+    }
+
+    private double result(int slot) {
+        if (flatStates != null) {
+            return measure.result(flatStates, slot * stateSize);
+        }
+        return measure.result(states[slot]);
+    }
+
+    private long cellIndex(int[] positions) {
+        if (positions.length != strides.length) {
+            throw new IllegalArgumentException("Expected " + strides.length + " positions");
+        }
+        long index = 0;
+        for (int axis = 0; axis < positions.length; axis++) {
+            index += positions[axis] * strides[axis];
+        }
+        return index;
+    }
+
+    /**
+     * Devuelve la posición de la celda; si no tiene y create es true, le asigna la siguiente
+     * con el estado vacío. Si no, devuelve -1.
+     */
+    private int slot(long cellIndex, boolean create) {
+        int slot = denseSlots != null ? denseSlots[(int) cellIndex] : sparseSlots.get(cellIndex);
+        if (slot != -1 || !create) {
+            return slot;
+        }
+        slot = size++;
+        if (slot == cells.length) {
+            cells = Arrays.copyOf(cells, slot * 2);
+            if (flatStates != null) {
+                flatStates = Arrays.copyOf(flatStates, slot * 2 * stateSize);
+            } else {
+                states = Arrays.copyOf(states, slot * 2);
+            }
+        }
+        cells[slot] = cellIndex;
+        if (denseSlots != null) {
+            denseSlots[(int) cellIndex] = slot;
+        } else {
+            sparseSlots.put(cellIndex, slot);
+        }
+        if (flatStates != null) {
+            System.arraycopy(emptyState, 0, flatStates, slot * stateSize, stateSize);
+        } else {
+            states[slot] = measure.init();
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,352 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import metrics.Measure;
+
+/**
+ * Motor de agrupamiento del cubo.
+ *
+ * Calcula todas las celdas de una tabla dinámica de N dimensiones en una sola pasada
+ * sobre las filas seleccionadas: cada foreign key se traduce a la posición del miembro
+ * del nivel activo, y el valor del hecho se acumula en el estado de la medida de esa celda.
+ *
+ * Se pueden calcular varias columnas (pares hecho/medida) en la misma pasada: la celda de cada
+ * fila se calcula una sola vez. Sin dimensiones (el total de la vista), cada bloque se agrega
+ * con los kernels por lotes de las medidas (ver metrics.Kernels) en lugar de fila por fila.
+ *
+ * Las filas se dividen en bloques de tamaño fijo. Cada bloque se agrega en una grilla parcial
+ * que sólo tiene las celdas que el bloque tocó (ver Grid.clear()), y las parciales se combinan
+ * en la grilla final siempre en el orden de los bloques, recorriendo sólo esas celdas: el costo
+ * es proporcional a las filas y no a las celdas de la grilla. En modo paralelo los bloques se
+ * agregan de a tandas de tantos bloques como hilos en un ForkJoinPool, cada hilo con su propia
+ * parcial; como el orden de combinación no cambia, el resultado es idéntico al del modo
+ * secuencial.
+ */
+public class GroupBy {
+    static final int CHUNK_ROWS = 1 << 16;  // Filas de la tabla por bloque
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new HashMap<>();  // Pools por cantidad de hilos, salvo el común
+
+    private FactTable table;
+    private Bitmap selection;
+    private List<Dimension> dimensions;
+    private List<String> facts;         // Hecho de cada columna del resultado
+    private List<Measure> measures;     // Medida de cada columna del resultado
+    private int parallelism;            // Cantidad de hilos; 1 es secuencial
+
+    private IntMap[] positions;         // Por eje, id -> posición del miembro
+    private int[][] keyColumns;         // Por eje, columna de la foreign key
+    private long[] strides;             // Por eje, salto del índice de celda
+    private double[][] values;          // Por columna del resultado, columna del hecho
+    private List<int[]> columnsByFact;  // Columnas del resultado agrupadas por hecho
+    private AtomicLong matched;         // Filas que cayeron en alguna celda
+
+    public GroupBy(
+        FactTable table,
+        Bitmap selection,
+        List<Dimension> dimensions,
+        String fact,
+        Measure measure
+    ) {
+        this(table, selection, dimensions, fact, measure, 1);
+    }
+
+    public GroupBy(
+        FactTable table,
+        Bitmap selection,
+        List<Dimension> dimensions,
+        String fact,
+        Measure measure,
+        int parallelism
+    ) {
+        this(table, selection, dimensions, List.of(fact), List.of(measure), parallelism);
+    }
+
+    /**
+     * Agrupamiento con varias columnas: un par hecho/medida por columna, todas calculadas
+     * en la misma pasada sobre las filas.
+     */
+    public GroupBy(
+        FactTable table,
+        Bitmap selection,
+        List<Dimension> dimensions,
+        List<String> facts,
+        List<Measure> measures,
+        int parallelism
+    ) {
+        if (facts.size() != measures.size() || facts.isEmpty()) {
+            throw new IllegalArgumentException("Expected one measure per fact");
+        }
+        this.table = table;
+        this.selection = selection;
+        this.dimensions = dimensions;
+        this.facts = facts;
+        this.measures = measures;
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    public Grid execute() {
+        return executeAll(null)[0];
+    }
+
+    /**
+     * Ejecuta el agrupamiento y devuelve una grilla por columna, en el orden de los hechos.
+     */
+    public Grid[] executeAll() {
+        return executeAll(null);
+    }
+
+    /**
+     * Ejecuta el agrupamiento sumando sus métricas a la consulta indicada (puede ser null):
+     * el armado de los ejes como fase GROUP y el recorrido de las filas como fase AGGREGATE.
+     */
+    Grid[] executeAll(QueryStats stats) {
+        long start = System.nanoTime();
+        int axes = dimensions.size();
+        positions = new IntMap[axes];
+        keyColumns = new int[axes][];
+
+        Grid[] grids = new Grid[facts.size()];
+        grids[0] = Grid.of(dimensions, facts.get(0), measures.get(0));
+        for (int c = 1; c < grids.length; c++) {
+            grids[c] = grids[0].emptyCopy(facts.get(c), measures.get(c));
+        }
+        for (int axis = 0; axis < axes; axis++) {
+            Dimension dimension = dimensions.get(axis);
+            positions[axis] = positionsById(dimension, grids[0].getMembers(axis));
+            keyColumns[axis] = table.getKeyColumn(dimension.getIdKey());
+        }
+
+        strides = new long[axes];
+        for (int axis = 0; axis < axes; axis++) {
+            strides[axis] = grids[0].stride(axis);
+        }
+        values = new double[grids.length][];
+        for (int c = 0; c < grids.length; c++) {
+            values[c] = table.getFactColumn(facts.get(c));
+        }
+        columnsByFact = groupColumnsByFact();
+        matched = new AtomicLong();
+        long grouped = System.nanoTime();
+
+        int chunks = (table.size() + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        int batch = Math.min(parallelism, chunks);
+        Grid[][] partials = new Grid[batch][grids.length];
+        for (int b = 0; b < batch; b++) {
+            for (int c = 0; c < grids.length; c++) {
+                partials[b][c] = grids[c].emptyCopy();
+            }
+        }
+        for (int first = 0; first < chunks; first += batch) {
+            int count = Math.min(batch, chunks - first);
+            if (count == 1) {
+                new Scan(partials[0], first).compute();
+            } else {
+                pool(parallelism).invoke(new Batch(partials, first, count));
+            }
+            for (int b = 0; b < count; b++) {
+                for (int c = 0; c < grids.length; c++) {
+                    grids[c].merge(partials[b][c]);
+                }
+            }
+        }
+        if (stats != null) {
+            stats.addPhase(QueryStats.Phase.GROUP, grouped - start);
+            stats.addPhase(QueryStats.Phase.AGGREGATE, System.nanoTime() - grouped);
+            stats.addRows(selection.cardinality(), matched.get());
+        }
+        return grids;
+    }
+
+    /**
+     * Agrega las filas seleccionadas de un bloque sobre las grillas indicadas.
+     * La celda de cada fila se calcula una vez y se usa para todas las columnas.
+     */
+    private void scan(Grid[] grids, int chunk) {
+        int from = chunk * CHUNK_ROWS;
+        int to = (int) Math.min((long) from + CHUNK_ROWS, table.size());
+        int axes = keyColumns.length;
+        if (axes == 0) {
+            scanTotal(grids, from, to);
+            return;
+        }
+        int count = 0;
+        for (int row : selection.toArray(from, to)) {
+            long cell = 0;
+            int axis = 0;
+            for (; axis < axes; axis++) {
+                int position = positions[axis].get(keyColumns[axis][row]);
+                if (position == -1) {
+                    break;  // El id no pertenece a la dimensión (por ejemplo, quedó fuera de un dice)
+                }
+                cell += position * strides[axis];
+            }
+            if (axis == axes) {
+                for (int c = 0; c < grids.length; c++) {
+                    grids[c].add(cell, values[c][row]);
+                }
+                count++;
+            }
+        }
+        matched.addAndGet(count);
+    }
+
+    /**
+     * Agrega un bloque sin dimensiones (una sola celda) con los kernels por lotes de las medidas:
+     * sobre el rango contiguo si el bloque está seleccionado completo, o sobre sus filas si no.
+     * Las medidas de un mismo hecho se calculan juntas (ver Measure.accumulateAll()).
+     */
+    private void scanTotal(Grid[] grids, int from, int to) {
+        int count = selection.cardinality(from, to);
+        if (count > 0) {
+            int[] rows = count == to - from ? null : selection.toArray(from, to);
+            for (int[] columns : columnsByFact) {
+                List<Measure> factMeasures = new ArrayList<>();
+                double[][] states = new double[columns.length][];
+                for (int i = 0; i < columns.length; i++) {
+                    factMeasures.add(measures.get(columns[i]));
+                    states[i] = measures.get(columns[i]).init();
+                }
+                double[] column = values[columns[0]];
+                if (rows == null) {
+                    Measure.accumulateAll(factMeasures, states, column, null, from, to);
+                } else {
+                    Measure.accumulateAll(factMeasures, states, column, rows, 0, count);
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    grids[columns[i]].merge(0, states[i]);
+                }
+            }
+        }
+        matched.addAndGet(count);
+    }
+
+    /**
+     * Agrupa las columnas del resultado que leen el mismo hecho, en orden de aparición.
+     */
+    private List<int[]> groupColumnsByFact() {
+        Map<String, List<Integer>> byFact = new LinkedHashMap<>();
+        for (int c = 0; c < facts.size(); c++) {
+            byFact.computeIfAbsent(facts.get(c), f -> new ArrayList<>()).add(c);
+        }
+        List<int[]> groups = new ArrayList<>();
+        for (List<Integer> columns : byFact.values()) {
+            int[] group = new int[columns.size()];
+            for (int i = 0; i < group.length; i++) {
+                group[i] = columns.get(i);
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Tanda de bloques consecutivos [first, first + count), agregados en paralelo, cada uno en
+     * su propia grilla parcial.
+     */
+    private class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private Grid[][] partials;  // Grillas parciales de cada bloque de la tanda
+        private int first;
+        private int count;
+
+        Batch(Grid[][] partials, int first, int count) {
+            this.partials = partials;
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            List<Scan> scans = new ArrayList<>();
+            for (int b = 0; b < count; b++) {
+                scans.add(new Scan(partials[b], first + b));
+            }
+            invokeAll(scans);
+        }
+    }
+
+    /**
+     * Agregación de un bloque en su grilla parcial, que se vacía antes (ver Grid.clear()).
+     */
+    private class Scan extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private Grid[] partial;
+        private int chunk;
+
+        Scan(Grid[] partial, int chunk) {
+            this.partial = partial;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            for (Grid grid : partial) {
+                grid.clear();
+            }
+            scan(partial, chunk);
+        }
+    }
+
+    /**
+     * Devuelve el ForkJoinPool para la cantidad de hilos indicada. Con un hilo por procesador
+     * se usa el pool común de la JVM (por defecto, sus hilos más el que invoca son uno por procesador).
+     * Para otras cantidades se crea un pool compartido con hilos daemon, que no impiden que
+     * termine la aplicación y, como en todo ForkJoinPool, terminan solos si quedan inactivos.
+     */
+    private static synchronized ForkJoinPool pool(int parallelism) {
+        if (parallelism == Runtime.getRuntime().availableProcessors()) {
+            return ForkJoinPool.commonPool();
+        }
+        ForkJoinPool pool = POOLS.get(parallelism);
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism, GroupBy::newWorker, null, false);
+            POOLS.put(parallelism, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Crea los hilos de los pools propios: los de ForkJoinPool, marcados como daemon.
+     */
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setDaemon(true);
+        return worker;
+    }
+
+    /**
+     * Traduce cada id de la dimensión a la posición de su miembro en el eje ordenado.
+     */
+    private static IntMap positionsById(Dimension dimension, List<Object> sorted) {
+        Level level = dimension.getActiveLevel();
+        Level idLevel = dimension.getIdLevel();
+
+        Map<Object, Integer> positionByMember = new HashMap<>();
+        for (int p = 0; p < sorted.size(); p++) {
+            positionByMember.put(sorted.get(p), p);
+        }
+        int[] positionByCode = new int[level.getMembers().size()];
+        for (int code = 0; code < positionByCode.length; code++) {
+            positionByCode[code] = positionByMember.get(level.getMembers().get(code));
+        }
+
+        IntMap positions = new IntMap(idLevel.size());
+        int[] codes = level.getCodes();
+        for (int row = 0; row < idLevel.size(); row++) {
+            positions.put((Integer) idLevel.get(row), positionByCode[codes[row]]);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,74 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de int a int con direccionamiento abierto, sin boxing.
+ * Los valores deben ser no negativos; get() devuelve -1 si la clave no existe.
+ */
+final class IntMap {
+    private int[] keys;
+    private int[] values;   // -1 marca una posición libre
+    private int size;
+
+    IntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, -1);
+        this.size = 0;
+    }
+
+    int get(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (values[i] != -1) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    void put(int key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (values[i] != -1) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, -1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != -1) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
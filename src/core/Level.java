@@ -1,32 +1,149 @@
 package core;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Se encarga de guardar todos los valores de un nivel de una dimensión.
  * En principio, la lista de objetos es la columna de un achivo de dimensión.
+ *
+ * Los valores se guardan codificados por diccionario: cada fila tiene un código entero
+ * y el diccionario guarda una sola vez cada valor distinto, en orden de aparición.
  */
 public class Level {
     private String name;
-    private List<Object> elements;
+    private int[] codes;                        // Código de diccionario de cada fila
+    private List<Object> dictionary;            // Valores distintos del nivel
+    private Map<String, Integer> codesByName;   // Código de cada valor, buscado por su toString()
 
     public Level(String name, List<Object> elements) {
         this.name = name;
-        this.elements = elements;
+        this.codes = new int[elements.size()];
+        this.dictionary = new ArrayList<>();
+        this.codesByName = new HashMap<>();
+
+        Map<Object, Integer> codesByValue = new HashMap<>();
+        for (int i = 0; i < elements.size(); i++) {
+            Object element = elements.get(i);
+            Integer code = codesByValue.get(element);
+            if (code == null) {
+                code = dictionary.size();
+                codesByValue.put(element, code);
+                dictionary.add(element);
+                codesByName.putIfAbsent(element.toString(), code);
+            }
+            codes[i] = code;
+        }
     }
 
     public Level(String name) {
+        this(name, new ArrayList<>());
+    }
+
+    /**
+     * Constructor para un nivel ya codificado (por ejemplo, al cargar un cubo persistido).
+     */
+    Level(String name, int[] codes, List<Object> dictionary) {
         this.name = name;
-        this.elements = new ArrayList<>();
+        this.codes = codes;
+        this.dictionary = dictionary;
+        this.codesByName = new HashMap<>();
+        for (int code = 0; code < dictionary.size(); code++) {
+            codesByName.putIfAbsent(dictionary.get(code).toString(), code);
+        }
     }
 
     public String getName() {
         return this.name;
     }
 
+    /**
+     * Devuelve los valores del nivel, una entrada por fila.
+     * Es una vista sobre los códigos; no copia los valores.
+     */
     public List<Object> getElements() {
-        return this.elements;
+        return new AbstractList<Object>() {
+            @Override
+            public Object get(int index) {
+                return dictionary.get(codes[index]);
+            }
+
+            @Override
+            public int size() {
+                return codes.length;
+            }
+        };
+    }
+
+    /**
+     * Devuelve los valores distintos del nivel (el diccionario).
+     */
+    public List<Object> getMembers() {
+        return this.dictionary;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public int[] getCodes() {
+        return this.codes;
+    }
+
+    public Object get(int row) {
+        return dictionary.get(codes[row]);
+    }
+
+    /**
+     * Devuelve el código del miembro con el valor indicado, o -1 si no existe.
+     */
+    public int getCode(String member) {
+        Integer code = codesByName.get(member);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Devuelve un nuevo nivel con sólo las filas indicadas, en el orden dado.
+     */
+    public Level subset(int[] rows) {
+        List<Object> elements = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            elements.add(get(row));
+        }
+        return new Level(name, elements);
+    }
+
+    @Override
+    public String toString() {
+        return "Level [name =" + name + ", rows =" + codes.length
+                + ", members =" + dictionary.size() + "]";
+    }
+
+    /**
+     * Arma un índice invertido miembro -> filas del nivel.
+     * Las filas de cada miembro quedan contiguas en el arreglo devuelto por rows,
+     * entre offsets[codigo] y offsets[codigo + 1].
+     *
+     * @return arreglo de dos posiciones: { offsets, rows }
+     */
+    int[][] rowsByMember() {
+        int[] offsets = new int[dictionary.size() + 1];
+        for (int code : codes) {
+            offsets[code + 1]++;
+        }
+        for (int m = 0; m < dictionary.size(); m++) {
+            offsets[m + 1] += offsets[m];
+        }
+        int[] next = Arrays.copyOf(offsets, dictionary.size());
+        int[] rows = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            rows[next[codes[i]]++] = i;
+        }
+        return new int[][] { offsets, rows };
     }
 
 }
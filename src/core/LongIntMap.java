@@ -0,0 +1,89 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de long a int con direccionamiento abierto, sin boxing (como IntMap, con claves long).
+ * Los valores deben ser no negativos; get() devuelve -1 si la clave no existe.
+ */
+final class LongIntMap {
+    private long[] keys;
+    private int[] values;   // -1 marca una posición libre
+    private int size;
+
+    LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, -1);
+        this.size = 0;
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (values[i] != -1) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (values[i] != -1) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Vacía el mapa conservando su capacidad.
+     */
+    void clear() {
+        Arrays.fill(values, -1);
+        size = 0;
+    }
+
+    /**
+     * Memoria aproximada, en bytes, de las claves y los valores.
+     */
+    long getMemoryBytes() {
+        return 32 + 12L * keys.length;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, -1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != -1) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
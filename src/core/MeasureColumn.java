@@ -0,0 +1,32 @@
+package core;
+
+/**
+ * Columna de una consulta con varias medidas: un hecho y la medida que se calcula sobre él
+ * (por ejemplo, suma de costo). Ver Cube.groupBy(List, String...).
+ */
+public class MeasureColumn {
+    private String fact;        // Nombre del hecho
+    private String measure;     // Nombre de la medida
+
+    public MeasureColumn(String fact, String measure) {
+        this.fact = fact;
+        this.measure = measure;
+    }
+
+    public static MeasureColumn of(String fact, String measure) {
+        return new MeasureColumn(fact, measure);
+    }
+
+    public String getFact() {
+        return this.fact;
+    }
+
+    public String getMeasure() {
+        return this.measure;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s)", fact, measure);
+    }
+}
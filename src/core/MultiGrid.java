@@ -0,0 +1,64 @@
+package core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de un agrupamiento con varias columnas (ver Cube.groupBy(List, String...)).
+ *
+ * Tiene una grilla por cada columna (hecho y medida), todas con los mismos ejes y miembros,
+ * calculadas en una sola pasada sobre las filas de la vista.
+ */
+public class MultiGrid {
+    private List<MeasureColumn> columns;
+    private Grid[] grids;       // Grilla de cada columna, en el mismo orden
+
+    MultiGrid(List<MeasureColumn> columns, Grid[] grids) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.grids = grids;
+    }
+
+    public List<MeasureColumn> getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Devuelve la grilla de la columna indicada.
+     */
+    public Grid getGrid(int column) {
+        return this.grids[column];
+    }
+
+    public List<String> getDimensions() {
+        return grids[0].getDimensions();
+    }
+
+    public String getLevel(int axis) {
+        return grids[0].getLevel(axis);
+    }
+
+    public List<Object> getMembers(int axis) {
+        return grids[0].getMembers(axis);
+    }
+
+    /**
+     * Devuelve el valor de la columna indicada en la posición dada de cada eje.
+     */
+    public double getValue(int column, int... positions) {
+        return grids[column].getValue(positions);
+    }
+
+    /**
+     * Devuelve un recorrido por filas con una columna por par hecho/medida (ver ResultCursor).
+     */
+    public ResultCursor cursor() {
+        return ResultCursor.of(this, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Devuelve un recorrido por filas de una página: hasta limit filas a partir de la fila offset.
+     */
+    public ResultCursor cursor(long offset, long limit) {
+        return ResultCursor.of(this, offset, limit);
+    }
+}
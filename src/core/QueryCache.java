@@ -0,0 +1,141 @@
+package core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Caché de resultados de groupBy() con desalojo LRU, limitada por la memoria aproximada de los
+ * resultados guardados (ver Grid.getMemoryBytes()) y no por su cantidad, así unas pocas grillas
+ * grandes no ocupan lo mismo que muchas chicas.
+ *
+ * La clave es una forma canónica del estado de la consulta (filtros de dice/slice, nivel activo
+ * de cada dimensión, dimensiones agrupadas, hecho y medida), así dos subcubos creados con los
+ * mismos filtros comparten los resultados. Se comparte entre un cubo y sus subcubos, y se vacía
+ * cuando cambia la cantidad de filas de la tabla de hechos.
+ */
+public class QueryCache {
+    private long maxBytes;              // Memoria máxima de los resultados guardados
+    private long bytes;                 // Memoria de los resultados guardados
+    private LinkedHashMap<String, Entry> results;
+    private int tableSize;              // Filas de la tabla cuando se guardaron los resultados
+    private long hits;
+    private long misses;
+
+    /**
+     * Resultado guardado, con su memoria calculada al guardarlo.
+     */
+    private static final class Entry {
+        private final Grid grid;
+        private final long bytes;
+
+        Entry(Grid grid, long bytes) {
+            this.grid = grid;
+            this.bytes = bytes;
+        }
+    }
+
+    public QueryCache(long maxBytes) {
+        this.results = new LinkedHashMap<>(16, 0.75f, true);
+        this.bytes = 0;
+        setMaxBytes(maxBytes);
+        this.tableSize = -1;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Define la memoria máxima, en bytes, de los resultados guardados; con 0 la caché queda
+     * desactivada. Si hace falta, descarta los resultados usados hace más tiempo.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Maximum bytes must not be negative");
+        }
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    /**
+     * Devuelve la memoria aproximada, en bytes, de los resultados guardados.
+     */
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Descarta todos los resultados guardados. Los contadores se conservan.
+     */
+    public synchronized void invalidate() {
+        results.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCache [size =" + results.size() + ", bytes =" + bytes + ", maxBytes =" + maxBytes
+                + ", hits =" + hits + ", misses =" + misses + "]";
+    }
+
+    /**
+     * Devuelve el resultado guardado para la clave, o null si no está.
+     */
+    synchronized Grid get(String key, int currentTableSize) {
+        if (currentTableSize != tableSize) {
+            invalidate();
+            tableSize = currentTableSize;
+        }
+        Entry entry = results.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.grid;
+    }
+
+    /**
+     * Guarda el resultado, salvo que ocupe por sí solo más que la memoria máxima.
+     */
+    synchronized void put(String key, Grid grid, int currentTableSize) {
+        if (currentTableSize != tableSize) {
+            return;
+        }
+        long gridBytes = grid.getMemoryBytes();
+        if (gridBytes > maxBytes) {
+            return;
+        }
+        Entry previous = results.put(key, new Entry(grid, gridBytes));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += gridBytes;
+        evict();
+    }
+
+    /**
+     * Descarta los resultados usados hace más tiempo hasta quedar dentro de la memoria máxima.
+     */
+    private void evict() {
+        Iterator<Entry> eldest = results.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+}
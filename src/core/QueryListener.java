@@ -0,0 +1,12 @@
+package core;
+
+/**
+ * Recibe las métricas de cada consulta terminada (ver QueryMonitor.addListener()).
+ *
+ * Se llama en el hilo que hizo la consulta, así que debe ser rápido y thread-safe:
+ * por ejemplo, publicar las métricas en un sistema de monitoreo o guardarlas en un log.
+ */
+public interface QueryListener {
+
+    public void onQuery(QueryStats stats);
+}
@@ -0,0 +1,287 @@
+package core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentación de las consultas del cubo.
+ *
+ * Cada groupBy(), dice()/slice(), getCell() y TablePrinter.display() abre una consulta con
+ * begin() y la cierra con end(); entre medio, el cubo suma el tiempo de cada fase (ver
+ * QueryStats.Phase), las filas recorridas y las que coincidieron, y las celdas producidas.
+ * Los bytes reservados se miden con el ThreadMXBean del hilo que hace la consulta (no incluyen
+ * los hilos de un groupBy() paralelo).
+ *
+ * Al cerrar una consulta, sus métricas se suman a los totales, se entregan a los QueryListener
+ * y, si tardó más que el umbral, se informan en el log de consultas lentas (logger
+ * "core.QueryMonitor", nivel WARNING). Los totales se pueden ver por JMX con register().
+ *
+ * Se comparte entre todas las vistas de un cubo y sus versiones (ver Cube.appendFacts()).
+ */
+public class QueryMonitor implements QueryMonitorMBean {
+    private static final Logger LOGGER = Logger.getLogger(QueryMonitor.class.getName());
+    private static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+
+    private final ThreadLocal<QueryStats> current;  // Consulta abierta en cada hilo
+    private final List<QueryListener> listeners;
+    private volatile boolean enabled;
+    private volatile long slowQueryNanos;           // Umbral del log de consultas lentas; -1 lo desactiva
+    private volatile String lastSlowQuery;
+    private final LongAdder queries;
+    private final LongAdder slowQueries;
+    private final LongAdder totalNanos;
+    private final LongAdder[] phaseNanos;           // Indexado por QueryStats.Phase.ordinal()
+    private final LongAdder rowsScanned;
+    private final LongAdder rowsMatched;
+    private final LongAdder cells;
+    private final LongAdder allocatedBytes;
+
+    public QueryMonitor() {
+        this.current = new ThreadLocal<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.enabled = true;
+        this.slowQueryNanos = DEFAULT_SLOW_QUERY_MILLIS * 1_000_000L;
+        this.lastSlowQuery = "";
+        this.queries = new LongAdder();
+        this.slowQueries = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.phaseNanos = new LongAdder[QueryStats.Phase.values().length];
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+        this.rowsScanned = new LongAdder();
+        this.rowsMatched = new LongAdder();
+        this.cells = new LongAdder();
+        this.allocatedBytes = new LongAdder();
+    }
+
+    /**
+     * Abre una consulta en el hilo actual. Si ya hay una abierta, la operación se suma a esa.
+     * Siempre se debe cerrar con end(), por ejemplo en un bloque finally.
+     *
+     * @param operation Nombre de la operación (groupBy, dice, getCell, display)
+     * @param query     Descripción de la consulta
+     * @return Métricas de la consulta abierta
+     */
+    public QueryStats begin(String operation, String query) {
+        QueryStats stats = current.get();
+        if (stats != null) {
+            stats.enter();
+            return stats;
+        }
+        stats = new QueryStats(operation, query, enabled ? allocatedBytes() : -1);
+        current.set(stats);
+        return stats;
+    }
+
+    /**
+     * Cierra una consulta abierta con begin(). Si es la de más afuera, publica sus métricas.
+     */
+    public void end(QueryStats stats) {
+        if (stats.exit() > 0) {
+            return;
+        }
+        current.remove();
+        long allocated = stats.getStartAllocated() < 0 ? -1 : allocatedBytes();
+        stats.finish(allocated < 0 ? -1 : allocated - stats.getStartAllocated());
+        if (enabled) {
+            publish(stats);
+        }
+    }
+
+    public void addListener(QueryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(QueryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publica los totales por JMX, con el nombre "cubo:type=QueryMonitor,name=<name>".
+     */
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Could not register the query monitor: " + e.getMessage(), e);
+        }
+    }
+
+    public void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Could not unregister the query monitor: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getAverageMillis() {
+        long count = queries.sum();
+        return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public double getFilterMillis() {
+        return phaseNanos[QueryStats.Phase.FILTER.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public double getGroupMillis() {
+        return phaseNanos[QueryStats.Phase.GROUP.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public double getAggregateMillis() {
+        return phaseNanos[QueryStats.Phase.AGGREGATE.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public double getFormatMillis() {
+        return phaseNanos[QueryStats.Phase.FORMAT.ordinal()].sum() / 1e6;
+    }
+
+    @Override
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    @Override
+    public long getRowsMatched() {
+        return rowsMatched.sum();
+    }
+
+    @Override
+    public long getCellsProduced() {
+        return cells.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryNanos < 0 ? -1 : slowQueryNanos / 1_000_000L;
+    }
+
+    /**
+     * Define desde cuántos milisegundos una consulta se informa como lenta; con -1 no se informa.
+     */
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        this.slowQueryNanos = millis < 0 ? -1 : millis * 1_000_000L;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Con false, las consultas no se suman a los totales ni se entregan a los listeners.
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public String getLastSlowQuery() {
+        return this.lastSlowQuery;
+    }
+
+    /**
+     * Pone los totales en cero. Los listeners y el umbral se conservan.
+     */
+    @Override
+    public void reset() {
+        queries.reset();
+        slowQueries.reset();
+        totalNanos.reset();
+        for (LongAdder phase : phaseNanos) {
+            phase.reset();
+        }
+        rowsScanned.reset();
+        rowsMatched.reset();
+        cells.reset();
+        allocatedBytes.reset();
+        lastSlowQuery = "";
+    }
+
+    @Override
+    public String toString() {
+        return "QueryMonitor [queries =" + getQueries() + ", slowQueries =" + getSlowQueries()
+                + ", averageMs =" + getAverageMillis() + "]";
+    }
+
+    private void publish(QueryStats stats) {
+        queries.increment();
+        totalNanos.add(stats.getTotalNanos());
+        for (QueryStats.Phase phase : QueryStats.Phase.values()) {
+            phaseNanos[phase.ordinal()].add(stats.getPhaseNanos(phase));
+        }
+        rowsScanned.add(stats.getRowsScanned());
+        rowsMatched.add(stats.getRowsMatched());
+        cells.add(stats.getCells());
+        if (stats.getAllocatedBytes() > 0) {
+            allocatedBytes.add(stats.getAllocatedBytes());
+        }
+        long threshold = slowQueryNanos;
+        if (threshold >= 0 && stats.getTotalNanos() >= threshold) {
+            slowQueries.increment();
+            lastSlowQuery = stats.toString();
+            LOGGER.warning("Slow query: " + stats);
+        }
+        for (QueryListener listener : listeners) {
+            try {
+                listener.onQuery(stats);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Query listener failed", e);
+            }
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("cubo:type=QueryMonitor,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Bytes reservados hasta ahora por el hilo actual, o -1 si la JVM no lo informa.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,43 @@
+package core;
+
+/**
+ * Interfaz JMX de QueryMonitor. Los tiempos se informan en milisegundos.
+ */
+public interface QueryMonitorMBean {
+
+    public long getQueries();
+
+    public long getSlowQueries();
+
+    public double getTotalMillis();
+
+    public double getAverageMillis();
+
+    public double getFilterMillis();
+
+    public double getGroupMillis();
+
+    public double getAggregateMillis();
+
+    public double getFormatMillis();
+
+    public long getRowsScanned();
+
+    public long getRowsMatched();
+
+    public long getCellsProduced();
+
+    public long getAllocatedBytes();
+
+    public long getSlowQueryThresholdMillis();
+
+    public void setSlowQueryThresholdMillis(long millis);
+
+    public boolean isEnabled();
+
+    public void setEnabled(boolean enabled);
+
+    public String getLastSlowQuery();
+
+    public void reset();
+}
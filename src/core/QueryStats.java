@@ -0,0 +1,133 @@
+package core;
+
+import java.util.Locale;
+
+/**
+ * Métricas de una consulta del cubo (ver QueryMonitor).
+ *
+ * Guarda el tiempo de cada fase, las filas recorridas y las que coincidieron, las celdas con
+ * datos del resultado y los bytes reservados por el hilo que hizo la consulta. Las operaciones
+ * anidadas (por ejemplo, el groupBy() de un TablePrinter.display()) suman sus métricas a la
+ * consulta que las contiene.
+ */
+public class QueryStats {
+
+    /**
+     * Fases de una consulta:
+     * FILTER arma el bitmap de filas de dice/slice/getCell, GROUP arma los ejes del resultado y
+     * traduce los ids a posiciones, AGGREGATE recorre las filas (o un agregado materializado)
+     * acumulando la medida, y FORMAT arma e imprime la tabla de TablePrinter.
+     */
+    public enum Phase {
+        FILTER, GROUP, AGGREGATE, FORMAT
+    }
+
+    private String operation;       // Operación de más afuera (groupBy, dice, getCell, display)
+    private String query;           // Descripción de la consulta (dimensiones, filtros, etc.)
+    private String source;          // De dónde salió el resultado: scan, aggregate o cache
+    private long[] phaseNanos;      // Tiempo de cada fase, indexado por Phase.ordinal()
+    private long totalNanos;
+    private long rowsScanned;       // Filas de la tabla (o grupos de un agregado) recorridas
+    private long rowsMatched;       // Filas que pasaron los filtros o cayeron en una celda
+    private long cells;             // Celdas con datos producidas
+    private long allocatedBytes;    // Bytes reservados por el hilo; -1 si la JVM no lo informa
+    private long startNanos;
+    private long startAllocated;
+    private int depth;              // Operaciones anidadas abiertas dentro de esta consulta
+
+    QueryStats(String operation, String query, long startAllocated) {
+        this.operation = operation;
+        this.query = query;
+        this.source = "";
+        this.phaseNanos = new long[Phase.values().length];
+        this.startAllocated = startAllocated;
+        this.allocatedBytes = -1;
+        this.startNanos = System.nanoTime();
+    }
+
+    public String getOperation() {
+        return this.operation;
+    }
+
+    public String getQuery() {
+        return this.query;
+    }
+
+    public String getSource() {
+        return this.source;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return this.phaseNanos[phase.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return this.totalNanos;
+    }
+
+    public long getRowsScanned() {
+        return this.rowsScanned;
+    }
+
+    public long getRowsMatched() {
+        return this.rowsMatched;
+    }
+
+    public long getCells() {
+        return this.cells;
+    }
+
+    public long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    /**
+     * Suma tiempo a una fase. Lo usan el cubo y TablePrinter; se puede usar para medir fases
+     * propias dentro de una consulta abierta con QueryMonitor.begin().
+     */
+    public void addPhase(Phase phase, long nanos) {
+        this.phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    void addRows(long scanned, long matched) {
+        this.rowsScanned += scanned;
+        this.rowsMatched += matched;
+    }
+
+    void addCells(long cells) {
+        this.cells += cells;
+    }
+
+    void setSource(String source) {
+        this.source = source;
+    }
+
+    int enter() {
+        return ++depth;
+    }
+
+    int exit() {
+        return depth--;
+    }
+
+    long getStartAllocated() {
+        return this.startAllocated;
+    }
+
+    void finish(long allocatedBytes) {
+        this.totalNanos = System.nanoTime() - startNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "QueryStats [operation =%s, query =%s, source =%s, totalMs =%.3f, filterMs =%.3f, "
+                + "groupMs =%.3f, aggregateMs =%.3f, formatMs =%.3f, rowsScanned =%d, rowsMatched =%d, "
+                + "cells =%d, allocatedBytes =%d]",
+                operation, query, source, totalNanos / 1e6,
+                phaseNanos[Phase.FILTER.ordinal()] / 1e6, phaseNanos[Phase.GROUP.ordinal()] / 1e6,
+                phaseNanos[Phase.AGGREGATE.ordinal()] / 1e6, phaseNanos[Phase.FORMAT.ordinal()] / 1e6,
+                rowsScanned, rowsMatched, cells, allocatedBytes);
+    }
+}
@@ -0,0 +1,101 @@
+package core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una consulta top-N o bottom-N (ver Cube.top() y Cube.bottom()).
+ *
+ * Tiene una partición por cada miembro de la dimensión de partición con datos (o una sola, con
+ * miembro null, si no hay dimensión de partición). Cada partición tiene hasta N miembros de la
+ * dimensión rankeada con su valor, del primero al último.
+ */
+public class Ranking {
+    private String dimension;           // Dimensión rankeada
+    private String level;               // Nivel activo de la dimensión rankeada
+    private String partitionDimension;  // Dimensión de partición; null si no hay
+    private String partitionLevel;
+    private String fact;
+    private String measure;
+    private boolean descending;         // true para top-N, false para bottom-N
+    private List<Object> partitions;    // Miembro de cada partición
+    private List<List<Object>> members; // Por partición, miembros del primero al último
+    private List<double[]> values;      // Por partición, valor de cada miembro
+
+    Ranking(
+        String dimension,
+        String level,
+        String partitionDimension,
+        String partitionLevel,
+        String fact,
+        String measure,
+        boolean descending,
+        List<Object> partitions,
+        List<List<Object>> members,
+        List<double[]> values
+    ) {
+        this.dimension = dimension;
+        this.level = level;
+        this.partitionDimension = partitionDimension;
+        this.partitionLevel = partitionLevel;
+        this.fact = fact;
+        this.measure = measure;
+        this.descending = descending;
+        this.partitions = Collections.unmodifiableList(partitions);
+        this.members = members;
+        this.values = values;
+    }
+
+    public String getDimension() {
+        return this.dimension;
+    }
+
+    public String getLevel() {
+        return this.level;
+    }
+
+    public String getPartitionDimension() {
+        return this.partitionDimension;
+    }
+
+    public String getPartitionLevel() {
+        return this.partitionLevel;
+    }
+
+    public String getFact() {
+        return this.fact;
+    }
+
+    public String getMeasure() {
+        return this.measure;
+    }
+
+    public boolean isDescending() {
+        return this.descending;
+    }
+
+    public List<Object> getPartitions() {
+        return this.partitions;
+    }
+
+    /**
+     * Devuelve los miembros de la partición, del primero al último del ranking.
+     */
+    public List<Object> getMembers(int partition) {
+        return Collections.unmodifiableList(members.get(partition));
+    }
+
+    /**
+     * Devuelve el valor del miembro en la posición indicada del ranking de la partición.
+     */
+    public double getValue(int partition, int rank) {
+        return values.get(partition)[rank];
+    }
+
+    @Override
+    public String toString() {
+        return "Ranking [" + (descending ? "top " : "bottom ") + dimension
+                + (partitionDimension == null ? "" : " by " + partitionDimension)
+                + ", partitions =" + partitions.size() + "]";
+    }
+}
@@ -0,0 +1,200 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorrido por filas del resultado de un agrupamiento (ver Grid.cursor() y MultiGrid.cursor()),
+ * sin armar la tabla completa.
+ *
+ * Las filas son las combinaciones de miembros de los ejes de fila, en orden. En una Grid con dos
+ * o más ejes, el último eje va en columnas (un pivot) y los demás en filas; con un eje o ninguno,
+ * hay una sola columna con la medida. En una MultiGrid todos los ejes van en filas y cada par
+ * hecho/medida es una columna.
+ *
+ * Cada next() calcula los valores de la fila siguiente en un buffer de doubles de tamaño fijo
+ * (una posición por columna), que se reutiliza entre filas. offset y limit indican la página de
+ * filas a recorrer; reset() vuelve al principio de la página.
+ */
+public class ResultCursor {
+    private Grid[] grids;               // Grilla de cada columna
+    private long[] columnOffsets;       // Desplazamiento de índice de celda de cada columna
+    private List<String> columnLabels;
+    private List<String> dimensions;    // Dimensión de cada eje de fila
+    private List<String> levels;        // Nivel activo de cada eje de fila
+    private List<List<Object>> members; // Miembros de cada eje de fila
+    private long rowStride;             // Salto del índice de celda entre filas
+    private long rowCount;              // Filas del resultado completo
+    private long start;                 // Primera fila de la página
+    private long end;                   // Fila siguiente a la última de la página
+    private long row;                   // Fila actual; start - 1 antes del primer next()
+    private double[] values;            // Valores de la fila actual, uno por columna
+
+    private ResultCursor(
+        Grid[] grids,
+        long[] columnOffsets,
+        List<String> columnLabels,
+        int rowAxes,
+        long offset,
+        long limit
+    ) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        Grid grid = grids[0];
+        this.grids = grids;
+        this.columnOffsets = columnOffsets;
+        this.columnLabels = columnLabels;
+        this.dimensions = grid.getDimensions().subList(0, rowAxes);
+        this.levels = new ArrayList<>();
+        this.members = new ArrayList<>();
+        this.rowCount = 1;
+        for (int axis = 0; axis < rowAxes; axis++) {
+            levels.add(grid.getLevel(axis));
+            members.add(grid.getMembers(axis));
+            rowCount *= grid.getMembers(axis).size();
+        }
+        this.rowStride = rowAxes == 0 ? 0 : grid.stride(rowAxes - 1);
+        this.start = Math.min(offset, rowCount);
+        this.end = Math.min(rowCount, start + Math.min(limit, rowCount));
+        this.values = new double[columnOffsets.length];
+        reset();
+    }
+
+    /**
+     * Recorre una grilla: el último eje en columnas, si tiene dos o más.
+     */
+    static ResultCursor of(Grid grid, long offset, long limit) {
+        int axes = grid.getDimensions().size();
+        if (axes < 2) {
+            List<String> labels = new ArrayList<>();
+            labels.add(String.format("%s (%s)", grid.getFact(), grid.getMeasure().getName()));
+            return new ResultCursor(new Grid[] { grid }, new long[1], labels, axes, offset, limit);
+        }
+        List<Object> columnMembers = grid.getMembers(axes - 1);
+        Grid[] grids = new Grid[columnMembers.size()];
+        long[] offsets = new long[columnMembers.size()];
+        List<String> labels = new ArrayList<>();
+        for (int c = 0; c < offsets.length; c++) {
+            grids[c] = grid;
+            offsets[c] = c * grid.stride(axes - 1);
+            labels.add(columnMembers.get(c).toString());
+        }
+        return new ResultCursor(grids, offsets, labels, axes - 1, offset, limit);
+    }
+
+    /**
+     * Recorre una MultiGrid: todos los ejes en filas y una columna por par hecho/medida.
+     */
+    static ResultCursor of(MultiGrid grid, long offset, long limit) {
+        int columns = grid.getColumns().size();
+        Grid[] grids = new Grid[columns];
+        List<String> labels = new ArrayList<>();
+        for (int c = 0; c < columns; c++) {
+            grids[c] = grid.getGrid(c);
+            labels.add(grid.getColumns().get(c).toString());
+        }
+        return new ResultCursor(grids, new long[columns], labels, grid.getDimensions().size(), offset, limit);
+    }
+
+    /**
+     * Devuelve la cantidad de ejes de fila.
+     */
+    public int getRowAxes() {
+        return this.dimensions.size();
+    }
+
+    public String getDimension(int axis) {
+        return this.dimensions.get(axis);
+    }
+
+    public String getLevel(int axis) {
+        return this.levels.get(axis);
+    }
+
+    /**
+     * Devuelve los miembros ordenados del eje de fila indicado.
+     */
+    public List<Object> getMembers(int axis) {
+        return this.members.get(axis);
+    }
+
+    public int getColumnCount() {
+        return this.values.length;
+    }
+
+    /**
+     * Devuelve la etiqueta de la columna: el miembro del eje de columnas, o el hecho y la medida.
+     */
+    public String getColumnLabel(int column) {
+        return this.columnLabels.get(column);
+    }
+
+    /**
+     * Devuelve la cantidad de filas del resultado completo, sin tener en cuenta la página.
+     */
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+    /**
+     * Avanza a la fila siguiente de la página y calcula sus valores.
+     *
+     * @return false si no quedan filas en la página
+     */
+    public boolean next() {
+        if (row + 1 >= end) {
+            row = end;
+            return false;
+        }
+        row++;
+        long base = row * rowStride;
+        for (int c = 0; c < values.length; c++) {
+            values[c] = grids[c].valueAt(base + columnOffsets[c]);
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve el número de la fila actual en el resultado completo, empezando en 0.
+     */
+    public long getRow() {
+        return this.row;
+    }
+
+    /**
+     * Devuelve el miembro de la fila actual en el eje de fila indicado.
+     */
+    public Object getMember(int axis) {
+        return members.get(axis).get(getPosition(axis));
+    }
+
+    /**
+     * Devuelve la posición del miembro de la fila actual en getMembers(axis).
+     */
+    public int getPosition(int axis) {
+        long position = row;
+        for (int a = members.size() - 1; a > axis; a--) {
+            position /= members.get(a).size();
+        }
+        return (int) (position % members.get(axis).size());
+    }
+
+    public double getValue(int column) {
+        return this.values[column];
+    }
+
+    /**
+     * Devuelve el buffer con los valores de la fila actual. Se sobrescribe en cada next().
+     */
+    public double[] getValues() {
+        return this.values;
+    }
+
+    /**
+     * Vuelve al principio de la página.
+     */
+    public void reset() {
+        this.row = start - 1;
+    }
+}
@@ -0,0 +1,189 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * La clase ApproxDistinctCount representa una medida de cantidad de valores distintos
+ * aproximada, con un HyperLogLog de 2^precision registros (error relativo típico de
+ * 1.04 / sqrt(2^precision): 1.6% con la precisión por defecto, 12).
+ *
+ * El estado empieza disperso y pasa a denso cuando ocupa un cuarto de lo que ocupa el denso:
+ * - Disperso: state[0] es la cantidad de entradas y cada entrada es posición * 64 + rango, con
+ *   una sola entrada por posición. Con pocos valores el resultado es prácticamente exacto.
+ * - Denso: state[0] es -1 y cada double guarda 8 registros de 6 bits (48 bits, enteros exactos).
+ * En ambos casos la memoria está acotada por 2^precision / 8 doubles, así que se puede usar en
+ * tablas grandes (por ejemplo productos x puntos de venta) y en los agregados materializados.
+ */
+public class ApproxDistinctCount extends Measure {
+    private static final int DEFAULT_PRECISION = 12;
+    private static final int REGISTERS_PER_WORD = 8;
+    private static final int REGISTER_BITS = 6;
+    private static final int INITIAL_ENTRIES = 4;
+
+    private int precision;
+    private int registers;      // 2^precision
+    private int sparseLimit;    // Entradas del estado disperso antes de pasar a denso
+
+    public ApproxDistinctCount() {
+        this("distintos_aprox", DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param name      Nombre de la medida
+     * @param precision Bits de la posición del registro, entre 4 y 16
+     */
+    public ApproxDistinctCount(String name, int precision) {
+        super(name);
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = 1 << precision;
+        this.sparseLimit = registers / REGISTERS_PER_WORD / 4;
+    }
+
+    public int getPrecision() {
+        return this.precision;
+    }
+
+    @Override
+    public double[] init() {
+        return new double[1 + INITIAL_ENTRIES];
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        long hash = hash(value + 0.0);  // + 0.0 convierte -0.0 en 0.0
+        int position = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        return update(state, position, rank);
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        if (other[0] >= 0) {
+            for (int i = 1; i <= other[0]; i++) {
+                int entry = (int) other[i];
+                state = update(state, entry >>> REGISTER_BITS, entry & 63);
+            }
+            return state;
+        }
+        if (state[0] >= 0) {
+            state = toDense(state);
+        }
+        for (int position = 0; position < registers; position++) {
+            int rank = register(other, position);
+            if (rank > register(state, position)) {
+                setRegister(state, position, rank);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public double result(double[] state) {
+        double sum = 0;
+        int zeros = 0;
+        if (state[0] >= 0) {
+            int entries = (int) state[0];
+            for (int i = 1; i <= entries; i++) {
+                sum += Math.scalb(1.0, -((int) state[i] & 63));
+            }
+            zeros = registers - entries;
+            sum += zeros;
+        } else {
+            for (int position = 0; position < registers; position++) {
+                int rank = register(state, position);
+                sum += Math.scalb(1.0, -rank);
+                if (rank == 0) {
+                    zeros++;
+                }
+            }
+        }
+        double estimate = alpha() * registers * registers / sum;
+        if (estimate <= 2.5 * registers && zeros > 0) {
+            estimate = registers * Math.log((double) registers / zeros);    // Conteo lineal
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Deja en el registro el máximo entre su rango y el indicado.
+     */
+    private double[] update(double[] state, int position, int rank) {
+        if (state[0] < 0) {
+            if (rank > register(state, position)) {
+                setRegister(state, position, rank);
+            }
+            return state;
+        }
+        int entries = (int) state[0];
+        for (int i = 1; i <= entries; i++) {
+            int entry = (int) state[i];
+            if (entry >>> REGISTER_BITS == position) {
+                if (rank > (entry & 63)) {
+                    state[i] = (position << REGISTER_BITS) | rank;
+                }
+                return state;
+            }
+        }
+        if (entries == sparseLimit) {
+            return update(toDense(state), position, rank);
+        }
+        if (entries + 1 == state.length) {
+            state = Arrays.copyOf(state, Math.min(state.length * 2, sparseLimit + 1));
+        }
+        state[entries + 1] = (position << REGISTER_BITS) | rank;
+        state[0] = entries + 1;
+        return state;
+    }
+
+    private double[] toDense(double[] sparse) {
+        double[] dense = new double[1 + registers / REGISTERS_PER_WORD];
+        dense[0] = -1;
+        for (int i = 1; i <= sparse[0]; i++) {
+            int entry = (int) sparse[i];
+            setRegister(dense, entry >>> REGISTER_BITS, entry & 63);
+        }
+        return dense;
+    }
+
+    private static int register(double[] dense, int position) {
+        long word = (long) dense[1 + position / REGISTERS_PER_WORD];
+        return (int) (word >>> (position % REGISTERS_PER_WORD * REGISTER_BITS)) & 63;
+    }
+
+    private static void setRegister(double[] dense, int position, int rank) {
+        int index = 1 + position / REGISTERS_PER_WORD;
+        int shift = position % REGISTERS_PER_WORD * REGISTER_BITS;
+        long word = (long) dense[index];
+        word = (word & ~(63L << shift)) | ((long) rank << shift);
+        dense[index] = word;
+    }
+
+    private double alpha() {
+        switch (registers) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registers);
+        }
+    }
+
+    /**
+     * Hash de 64 bits del valor (finalizador de MurmurHash3).
+     */
+    private static long hash(double value) {
+        long bits = Double.doubleToLongBits(value);
+        bits ^= bits >>> 33;
+        bits *= 0xff51afd7ed558ccdL;
+        bits ^= bits >>> 33;
+        bits *= 0xc4ceb9fe1a85ec53L;
+        bits ^= bits >>> 33;
+        return bits;
+    }
+}
@@ -0,0 +1,83 @@
+package metrics;
+
+/**
+ * La clase Average representa una medida de promedio.
+ * El estado guarda la cantidad de valores y la suma; sin valores, el resultado es 0.
+ */
+public class Average extends Measure {
+
+    public Average() {
+        super("promedio");
+    }
+
+    @Override
+    public double[] init() {
+        return new double[] { 0, 0 };
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        state[0]++;
+        state[1] += value;
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        state[1] += Kernels.sum(column, from, to);
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int[] rows, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        state[1] += Kernels.sum(column, rows, from, to);
+        return state;
+    }
+
+    @Override
+    public double[] fromSummary(double[] summary) {
+        return new double[] { summary[Kernels.COUNT], summary[Kernels.SUM] };
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        state[0] += other[0];
+        state[1] += other[1];
+        return state;
+    }
+
+    @Override
+    public double result(double[] state) {
+        if (state[0] == 0) {
+            return 0;
+        }
+        return state[1] / state[0];
+    }
+
+    @Override
+    public int getStateSize() {
+        return 2;
+    }
+
+    @Override
+    public void accumulate(double[] states, int offset, double value) {
+        states[offset]++;
+        states[offset + 1] += value;
+    }
+
+    @Override
+    public void merge(double[] states, int offset, double[] other, int otherOffset) {
+        states[offset] += other[otherOffset];
+        states[offset + 1] += other[otherOffset + 1];
+    }
+
+    @Override
+    public double result(double[] states, int offset) {
+        if (states[offset] == 0) {
+            return 0;
+        }
+        return states[offset + 1] / states[offset];
+    }
+}
@@ -1,7 +1,5 @@
 package metrics;
 
-import java.util.List;
-
 /**
  * La clase Count representa una medida de cuenta
  */
@@ -12,11 +10,61 @@ public class Count extends Measure {
     }
 
     @Override
-    public double calc(List<Double> values) {
-        if (values == null) {
-            return 0;
-        }
-        return values.size();
+    public double[] init() {
+        return new double[] { 0 };
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        state[0]++;
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int[] rows, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        return state;
+    }
+
+    @Override
+    public double[] fromSummary(double[] summary) {
+        return new double[] { summary[Kernels.COUNT] };
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        state[0] += other[0];
+        return state;
+    }
+
+    @Override
+    public double result(double[] state) {
+        return state[0];
     }
 
-}
\ No newline at end of file
+    @Override
+    public int getStateSize() {
+        return 1;
+    }
+
+    @Override
+    public void accumulate(double[] states, int offset, double value) {
+        states[offset]++;
+    }
+
+    @Override
+    public void merge(double[] states, int offset, double[] other, int otherOffset) {
+        states[offset] += other[otherOffset];
+    }
+
+    @Override
+    public double result(double[] states, int offset) {
+        return states[offset];
+    }
+}
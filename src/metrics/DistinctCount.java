@@ -0,0 +1,104 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * La clase DistinctCount representa una medida de cantidad de valores distintos (exacta).
+ *
+ * El estado es un conjunto de valores con direccionamiento abierto: state[0] es la cantidad de
+ * valores y el resto son las posiciones de la tabla (una potencia de 2), con NaN en las vacías.
+ * Crece al pasar la mitad de ocupación, así que ocupa memoria proporcional a la cantidad de
+ * valores distintos; para grupos grandes conviene ApproxDistinctCount, de memoria acotada.
+ */
+public class DistinctCount extends Measure {
+    private static final int INITIAL_SLOTS = 8;
+
+    public DistinctCount() {
+        super("distintos");
+    }
+
+    @Override
+    public double[] init() {
+        return emptySet(INITIAL_SLOTS);
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        if (Double.isNaN(value)) {
+            return state;   // NaN marca las posiciones vacías; los hechos no tienen NaN
+        }
+        if ((state[0] + 1) * 2 > state.length - 1) {
+            state = resize(state, (state.length - 1) * 2);
+        }
+        insert(state, value + 0.0);  // + 0.0 convierte -0.0 en 0.0
+        return state;
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        for (int slot = 1; slot < other.length; slot++) {
+            if (!Double.isNaN(other[slot])) {
+                state = accumulate(state, other[slot]);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public double result(double[] state) {
+        return state[0];
+    }
+
+    /**
+     * El conjunto crece con la cantidad de valores distintos, por lo que no se materializa en los
+     * agregados.
+     */
+    @Override
+    public boolean hasBoundedState() {
+        return false;
+    }
+
+    private static double[] emptySet(int slots) {
+        double[] state = new double[slots + 1];
+        Arrays.fill(state, 1, state.length, Double.NaN);
+        return state;
+    }
+
+    private static double[] resize(double[] state, int slots) {
+        double[] resized = emptySet(slots);
+        for (int slot = 1; slot < state.length; slot++) {
+            if (!Double.isNaN(state[slot])) {
+                insert(resized, state[slot]);
+            }
+        }
+        return resized;
+    }
+
+    /**
+     * Agrega el valor si no está. La tabla debe tener al menos una posición vacía.
+     */
+    private static void insert(double[] state, double value) {
+        int mask = state.length - 2;
+        int slot = hash(value) & mask;
+        while (true) {
+            double current = state[slot + 1];
+            if (Double.isNaN(current)) {
+                state[slot + 1] = value;
+                state[0]++;
+                return;
+            }
+            if (current == value) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(double value) {
+        long bits = Double.doubleToLongBits(value);
+        bits ^= bits >>> 33;
+        bits *= 0xff51afd7ed558ccdL;
+        bits ^= bits >>> 33;
+        return (int) bits;
+    }
+}
@@ -0,0 +1,325 @@
+package metrics;
+
+/**
+ * Kernels de agregación por lotes sobre columnas de hechos (double[]).
+ *
+ * Cada kernel recorre un rango contiguo de filas [from, to) o un vector de selección
+ * (rows[from..to), con los números de fila en orden). Los bucles están desenrollados con
+ * acumuladores independientes y sin ramas: el mínimo y el máximo se escriben como comparaciones
+ * que el JIT compila a movimientos condicionales (Math.min/Math.max agregan chequeos de NaN y
+ * -0.0 que son el doble de lentos). Así las operaciones se solapan en vez de esperar una a otra.
+ *
+ * Nota: la suma con varios acumuladores puede diferir en el último bit de la suma secuencial,
+ * como la combinación de particiones de GroupBy.
+ * Los hechos pueden tener NaN (Double.parseDouble() acepta "NaN"), que las comparaciones saltean.
+ * Por eso el mínimo y el máximo también suman los valores: si la suma da NaN, puede haber un NaN
+ * y se recalculan con Math.min()/Math.max(), que lo propagan como Min y Max. Así el resultado
+ * coincide con el de Min y Max, salvo que 0.0 y -0.0 se consideran iguales.
+ */
+public final class Kernels {
+    public static final int COUNT = 0;  // Posiciones del resultado de summary()
+    public static final int SUM = 1;
+    public static final int MIN = 2;
+    public static final int MAX = 3;
+
+    private Kernels() {
+    }
+
+    /**
+     * Suma de las filas contiguas [from, to) de la columna.
+     */
+    public static double sum(double[] column, int from, int to) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += column[i];
+            s1 += column[i + 1];
+            s2 += column[i + 2];
+            s3 += column[i + 3];
+        }
+        for (; i < to; i++) {
+            s0 += column[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Suma de las filas rows[from..to) de la columna.
+     */
+    public static double sum(double[] column, int[] rows, int from, int to) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += column[rows[i]];
+            s1 += column[rows[i + 1]];
+            s2 += column[rows[i + 2]];
+            s3 += column[rows[i + 3]];
+        }
+        for (; i < to; i++) {
+            s0 += column[rows[i]];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static double min(double[] column, int from, int to) {
+        double m0 = Double.POSITIVE_INFINITY;
+        double m1 = Double.POSITIVE_INFINITY;
+        double m2 = Double.POSITIVE_INFINITY;
+        double m3 = Double.POSITIVE_INFINITY;
+        double s0 = 0;
+        double s1 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double v0 = column[i];
+            m0 = v0 < m0 ? v0 : m0;
+            s0 += v0;
+            double v1 = column[i + 1];
+            m1 = v1 < m1 ? v1 : m1;
+            s1 += v1;
+            double v2 = column[i + 2];
+            m2 = v2 < m2 ? v2 : m2;
+            s0 += v2;
+            double v3 = column[i + 3];
+            m3 = v3 < m3 ? v3 : m3;
+            s1 += v3;
+        }
+        for (; i < to; i++) {
+            double v = column[i];
+            m0 = v < m0 ? v : m0;
+            s0 += v;
+        }
+        if (Double.isNaN(s0 + s1)) {
+            return exactMin(column, null, from, to);
+        }
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    public static double min(double[] column, int[] rows, int from, int to) {
+        double m0 = Double.POSITIVE_INFINITY;
+        double m1 = Double.POSITIVE_INFINITY;
+        double m2 = Double.POSITIVE_INFINITY;
+        double m3 = Double.POSITIVE_INFINITY;
+        double s0 = 0;
+        double s1 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double v0 = column[rows[i]];
+            m0 = v0 < m0 ? v0 : m0;
+            s0 += v0;
+            double v1 = column[rows[i + 1]];
+            m1 = v1 < m1 ? v1 : m1;
+            s1 += v1;
+            double v2 = column[rows[i + 2]];
+            m2 = v2 < m2 ? v2 : m2;
+            s0 += v2;
+            double v3 = column[rows[i + 3]];
+            m3 = v3 < m3 ? v3 : m3;
+            s1 += v3;
+        }
+        for (; i < to; i++) {
+            double v = column[rows[i]];
+            m0 = v < m0 ? v : m0;
+            s0 += v;
+        }
+        if (Double.isNaN(s0 + s1)) {
+            return exactMin(column, rows, from, to);
+        }
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    public static double max(double[] column, int from, int to) {
+        double m0 = Double.NEGATIVE_INFINITY;
+        double m1 = Double.NEGATIVE_INFINITY;
+        double m2 = Double.NEGATIVE_INFINITY;
+        double m3 = Double.NEGATIVE_INFINITY;
+        double s0 = 0;
+        double s1 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double v0 = column[i];
+            m0 = v0 > m0 ? v0 : m0;
+            s0 += v0;
+            double v1 = column[i + 1];
+            m1 = v1 > m1 ? v1 : m1;
+            s1 += v1;
+            double v2 = column[i + 2];
+            m2 = v2 > m2 ? v2 : m2;
+            s0 += v2;
+            double v3 = column[i + 3];
+            m3 = v3 > m3 ? v3 : m3;
+            s1 += v3;
+        }
+        for (; i < to; i++) {
+            double v = column[i];
+            m0 = v > m0 ? v : m0;
+            s0 += v;
+        }
+        if (Double.isNaN(s0 + s1)) {
+            return exactMax(column, null, from, to);
+        }
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    public static double max(double[] column, int[] rows, int from, int to) {
+        double m0 = Double.NEGATIVE_INFINITY;
+        double m1 = Double.NEGATIVE_INFINITY;
+        double m2 = Double.NEGATIVE_INFINITY;
+        double m3 = Double.NEGATIVE_INFINITY;
+        double s0 = 0;
+        double s1 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double v0 = column[rows[i]];
+            m0 = v0 > m0 ? v0 : m0;
+            s0 += v0;
+            double v1 = column[rows[i + 1]];
+            m1 = v1 > m1 ? v1 : m1;
+            s1 += v1;
+            double v2 = column[rows[i + 2]];
+            m2 = v2 > m2 ? v2 : m2;
+            s0 += v2;
+            double v3 = column[rows[i + 3]];
+            m3 = v3 > m3 ? v3 : m3;
+            s1 += v3;
+        }
+        for (; i < to; i++) {
+            double v = column[rows[i]];
+            m0 = v > m0 ? v : m0;
+            s0 += v;
+        }
+        if (Double.isNaN(s0 + s1)) {
+            return exactMax(column, rows, from, to);
+        }
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    /**
+     * Calcula en una sola pasada la cantidad, la suma, el mínimo y el máximo de las filas
+     * contiguas [from, to). Lo usan las medidas que se derivan de esos valores (ver
+     * Measure.fromSummary()) para calcularse juntas leyendo la columna una sola vez.
+     * La suma usa los mismos cuatro acumuladores que sum(), así da exactamente el mismo valor.
+     *
+     * @return { cantidad, suma, mínimo, máximo }, indexado por COUNT, SUM, MIN y MAX
+     */
+    public static double[] summary(double[] column, int from, int to) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        double min0 = Double.POSITIVE_INFINITY;
+        double min1 = Double.POSITIVE_INFINITY;
+        double max0 = Double.NEGATIVE_INFINITY;
+        double max1 = Double.NEGATIVE_INFINITY;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double v0 = column[i];
+            double v1 = column[i + 1];
+            double v2 = column[i + 2];
+            double v3 = column[i + 3];
+            s0 += v0;
+            s1 += v1;
+            s2 += v2;
+            s3 += v3;
+            min0 = v0 < min0 ? v0 : min0;
+            min1 = v1 < min1 ? v1 : min1;
+            min0 = v2 < min0 ? v2 : min0;
+            min1 = v3 < min1 ? v3 : min1;
+            max0 = v0 > max0 ? v0 : max0;
+            max1 = v1 > max1 ? v1 : max1;
+            max0 = v2 > max0 ? v2 : max0;
+            max1 = v3 > max1 ? v3 : max1;
+        }
+        for (; i < to; i++) {
+            double v = column[i];
+            s0 += v;
+            min0 = v < min0 ? v : min0;
+            max0 = v > max0 ? v : max0;
+        }
+        double sum = (s0 + s1) + (s2 + s3);
+        if (Double.isNaN(sum)) {
+            return new double[] {
+                Math.max(to - from, 0), sum, exactMin(column, null, from, to), exactMax(column, null, from, to)
+            };
+        }
+        return new double[] {
+            Math.max(to - from, 0), sum, Math.min(min0, min1), Math.max(max0, max1)
+        };
+    }
+
+    /**
+     * Sobrecarga de summary() para las filas rows[from..to).
+     */
+    public static double[] summary(double[] column, int[] rows, int from, int to) {
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        double min0 = Double.POSITIVE_INFINITY;
+        double min1 = Double.POSITIVE_INFINITY;
+        double max0 = Double.NEGATIVE_INFINITY;
+        double max1 = Double.NEGATIVE_INFINITY;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            double v0 = column[rows[i]];
+            double v1 = column[rows[i + 1]];
+            double v2 = column[rows[i + 2]];
+            double v3 = column[rows[i + 3]];
+            s0 += v0;
+            s1 += v1;
+            s2 += v2;
+            s3 += v3;
+            min0 = v0 < min0 ? v0 : min0;
+            min1 = v1 < min1 ? v1 : min1;
+            min0 = v2 < min0 ? v2 : min0;
+            min1 = v3 < min1 ? v3 : min1;
+            max0 = v0 > max0 ? v0 : max0;
+            max1 = v1 > max1 ? v1 : max1;
+            max0 = v2 > max0 ? v2 : max0;
+            max1 = v3 > max1 ? v3 : max1;
+        }
+        for (; i < to; i++) {
+            double v = column[rows[i]];
+            s0 += v;
+            min0 = v < min0 ? v : min0;
+            max0 = v > max0 ? v : max0;
+        }
+        double sum = (s0 + s1) + (s2 + s3);
+        if (Double.isNaN(sum)) {
+            return new double[] {
+                Math.max(to - from, 0), sum, exactMin(column, rows, from, to), exactMax(column, rows, from, to)
+            };
+        }
+        return new double[] {
+            Math.max(to - from, 0), sum, Math.min(min0, min1), Math.max(max0, max1)
+        };
+    }
+
+    /**
+     * Mínimo con Math.min(), que propaga NaN, de las filas [from, to) o rows[from..to) si rows
+     * no es null. Sólo se usa cuando la suma indica que puede haber un NaN.
+     */
+    private static double exactMin(double[] column, int[] rows, int from, int to) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, column[rows == null ? i : rows[i]]);
+        }
+        return min;
+    }
+
+    /**
+     * Máximo con Math.max(), que propaga NaN (ver exactMin()).
+     */
+    private static double exactMax(double[] column, int[] rows, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, column[rows == null ? i : rows[i]]);
+        }
+        return max;
+    }
+}
@@ -1,10 +1,8 @@
 package metrics;
 
-import java.util.Collections;
-import java.util.List;
-
 /**
- * La clase Max representa una medida de valor máximo
+ * La clase Max representa una medida de valor máximo.
+ * El estado guarda la cantidad de valores y el máximo; sin valores, el resultado es 0.
  */
 public class Max extends Measure{
 
@@ -13,12 +11,73 @@ public class Max extends Measure{
     }
 
     @Override
-    public double calc(List<Double> values) {
-        if (values == null) {
+    public double[] init() {
+        return new double[] { 0, Double.NEGATIVE_INFINITY };
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        state[0]++;
+        state[1] = Math.max(state[1], value);
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        state[1] = Math.max(state[1], Kernels.max(column, from, to));
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int[] rows, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        state[1] = Math.max(state[1], Kernels.max(column, rows, from, to));
+        return state;
+    }
+
+    @Override
+    public double[] fromSummary(double[] summary) {
+        return new double[] { summary[Kernels.COUNT], summary[Kernels.MAX] };
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        state[0] += other[0];
+        state[1] = Math.max(state[1], other[1]);
+        return state;
+    }
+
+    @Override
+    public double result(double[] state) {
+        if (state[0] == 0) {
+            return 0;
+        }
+        return state[1];
+    }
+
+    @Override
+    public int getStateSize() {
+        return 2;
+    }
+
+    @Override
+    public void accumulate(double[] states, int offset, double value) {
+        states[offset]++;
+        states[offset + 1] = Math.max(states[offset + 1], value);
+    }
+
+    @Override
+    public void merge(double[] states, int offset, double[] other, int otherOffset) {
+        states[offset] += other[otherOffset];
+        states[offset + 1] = Math.max(states[offset + 1], other[otherOffset + 1]);
+    }
+
+    @Override
+    public double result(double[] states, int offset) {
+        if (states[offset] == 0) {
             return 0;
         }
-        Collections.sort(values);
-        Collections.reverse(values);
-        return values.get(0);
+        return states[offset + 1];
     }
 }
@@ -1,9 +1,20 @@
 package metrics;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * La clase abstracta Measure representa una medida a calcular en un conjunto de datos
+ * La clase abstracta Measure representa una medida a calcular en un conjunto de datos.
+ *
+ * Las medidas se calculan de forma incremental sobre un estado primitivo (double[]):
+ * init() crea el estado vacío, accumulate() suma un valor, merge() combina dos estados
+ * parciales (por ejemplo, de distintas particiones) y result() devuelve el valor final.
+ * accumulate() y merge() devuelven el estado resultante, que puede ser el mismo arreglo o uno
+ * nuevo si el estado tiene que crecer (por ejemplo, DistinctCount o Quantile). merge() no
+ * modifica ni conserva el estado recibido, que puede ser el de un agregado materializado.
+ *
+ * Las sobrecargas de accumulate() por lotes reciben la columna de hechos y un rango de filas o
+ * un vector de selección; las medidas con un kernel propio (ver Kernels) las sobrescriben.
  */
 public abstract class Measure {
     private String name;
@@ -16,7 +27,136 @@ public abstract class Measure {
         return this.name;
     }
 
-    public abstract double calc(List<Double> values);
+    public abstract double[] init();
+
+    public abstract double[] accumulate(double[] state, double value);
+
+    public abstract double[] merge(double[] state, double[] other);
+
+    public abstract double result(double[] state);
+
+    /**
+     * Acumula las filas contiguas [from, to) de una columna de hechos.
+     */
+    public double[] accumulate(double[] state, double[] column, int from, int to) {
+        for (int row = from; row < to; row++) {
+            state = accumulate(state, column[row]);
+        }
+        return state;
+    }
+
+    /**
+     * Acumula las filas rows[from..to) de una columna de hechos.
+     */
+    public double[] accumulate(double[] state, double[] column, int[] rows, int from, int to) {
+        for (int i = from; i < to; i++) {
+            state = accumulate(state, column[rows[i]]);
+        }
+        return state;
+    }
+
+    /**
+     * Devuelve el estado de la medida a partir de la cantidad, suma, mínimo y máximo de un
+     * conjunto de valores (ver Kernels.summary()), o null si la medida no se deriva de ellos.
+     */
+    public double[] fromSummary(double[] summary) {
+        return null;
+    }
+
+    /**
+     * Indica si el estado ocupa memoria acotada, sin importar cuántos valores acumule.
+     * Los agregados materializados nunca guardan medidas sin estado acotado (ver
+     * CubeBuilder.setAggregateSketches()).
+     */
+    public boolean hasBoundedState() {
+        return true;
+    }
+
+    /**
+     * Devuelve el tamaño fijo del estado, o -1 si el estado puede crecer. Las grillas guardan
+     * los estados de tamaño fijo uno tras otro en un solo arreglo (ver las sobrecargas de
+     * accumulate(), merge() y result() con offset), sin un double[] por celda.
+     */
+    public int getStateSize() {
+        return -1;
+    }
+
+    /**
+     * Acumula un valor en el estado de tamaño fijo guardado en states[offset..offset + getStateSize()).
+     * Por defecto copia el estado y usa accumulate(); las medidas de tamaño fijo lo sobrescriben.
+     */
+    public void accumulate(double[] states, int offset, double value) {
+        int size = getStateSize();
+        double[] state = accumulate(Arrays.copyOfRange(states, offset, offset + size), value);
+        System.arraycopy(state, 0, states, offset, size);
+    }
+
+    /**
+     * Combina el estado other[otherOffset..] en el estado de tamaño fijo guardado en
+     * states[offset..]; ver accumulate(double[], int, double).
+     */
+    public void merge(double[] states, int offset, double[] other, int otherOffset) {
+        int size = getStateSize();
+        double[] state = merge(
+            Arrays.copyOfRange(states, offset, offset + size),
+            Arrays.copyOfRange(other, otherOffset, otherOffset + size)
+        );
+        System.arraycopy(state, 0, states, offset, size);
+    }
+
+    /**
+     * Devuelve el resultado del estado de tamaño fijo guardado en states[offset..].
+     */
+    public double result(double[] states, int offset) {
+        return result(Arrays.copyOfRange(states, offset, offset + getStateSize()));
+    }
+
+    /**
+     * Calcula la medida sobre las filas indicadas de una columna de hechos.
+     */
+    public double calc(double[] column, int[] rows) {
+        return result(accumulate(init(), column, rows, 0, rows.length));
+    }
+
+    /**
+     * Acumula varias medidas sobre las mismas filas de una columna: rows[from..to), o el rango
+     * contiguo [from, to) si rows es null. Si todas las medidas se derivan de Kernels.summary(),
+     * la columna se recorre una sola vez.
+     *
+     * @param states Estado de cada medida, en el mismo orden; se actualiza en el lugar
+     */
+    public static void accumulateAll(
+        List<Measure> measures,
+        double[][] states,
+        double[] column,
+        int[] rows,
+        int from,
+        int to
+    ) {
+        double[][] derived = null;
+        if (measures.size() > 1) {
+            double[] summary = rows == null
+                ? Kernels.summary(column, from, to)
+                : Kernels.summary(column, rows, from, to);
+            derived = new double[measures.size()][];
+            for (int m = 0; m < measures.size() && derived != null; m++) {
+                derived[m] = measures.get(m).fromSummary(summary);
+                if (derived[m] == null) {
+                    derived = null;
+                }
+            }
+        }
+        for (int m = 0; m < measures.size(); m++) {
+            Measure measure = measures.get(m);
+            if (derived != null) {
+                states[m] = measure.merge(states[m], derived[m]);
+            } else if (rows == null) {
+                states[m] = measure.accumulate(states[m], column, from, to);
+            } else {
+                states[m] = measure.accumulate(states[m], column, rows, from, to);
+            }
+        }
+    }
 
     @Override
     public String toString() {
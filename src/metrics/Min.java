@@ -1,10 +1,8 @@
 package metrics;
 
-import java.util.Collections;
-import java.util.List;
-
 /**
- * La clase Min representa una medida de valor mínimo
+ * La clase Min representa una medida de valor mínimo.
+ * El estado guarda la cantidad de valores y el mínimo; sin valores, el resultado es 0.
  */
 public class Min extends Measure{
 
@@ -13,11 +11,73 @@ public class Min extends Measure{
     }
 
     @Override
-    public double calc(List<Double> values) {
-        if (values == null) {
+    public double[] init() {
+        return new double[] { 0, Double.POSITIVE_INFINITY };
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        state[0]++;
+        state[1] = Math.min(state[1], value);
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        state[1] = Math.min(state[1], Kernels.min(column, from, to));
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int[] rows, int from, int to) {
+        state[0] += Math.max(to - from, 0);
+        state[1] = Math.min(state[1], Kernels.min(column, rows, from, to));
+        return state;
+    }
+
+    @Override
+    public double[] fromSummary(double[] summary) {
+        return new double[] { summary[Kernels.COUNT], summary[Kernels.MIN] };
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        state[0] += other[0];
+        state[1] = Math.min(state[1], other[1]);
+        return state;
+    }
+
+    @Override
+    public double result(double[] state) {
+        if (state[0] == 0) {
+            return 0;
+        }
+        return state[1];
+    }
+
+    @Override
+    public int getStateSize() {
+        return 2;
+    }
+
+    @Override
+    public void accumulate(double[] states, int offset, double value) {
+        states[offset]++;
+        states[offset + 1] = Math.min(states[offset + 1], value);
+    }
+
+    @Override
+    public void merge(double[] states, int offset, double[] other, int otherOffset) {
+        states[offset] += other[otherOffset];
+        states[offset + 1] = Math.min(states[offset + 1], other[otherOffset + 1]);
+    }
+
+    @Override
+    public double result(double[] states, int offset) {
+        if (states[offset] == 0) {
             return 0;
         }
-        Collections.sort(values);
-        return values.get(0);
+        return states[offset + 1];
     }
 }
@@ -0,0 +1,239 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * La clase Quantile representa una medida de cuantil aproximado (por ejemplo, la mediana o el
+ * percentil 95), calculado con un t-digest.
+ *
+ * El estado guarda hasta 4 * compression valores tal cual; mientras no se superan, el resultado
+ * es exacto (interpolación lineal entre los valores ordenados). Al llenarse, los valores se
+ * comprimen en centroides (media y peso) más chicos en los extremos que en el centro, así que
+ * los cuantiles altos y bajos conservan más precisión. Hay a lo sumo compression + 1
+ * centroides, por lo que la memoria de cada celda está acotada (a lo sumo unos 5 KB con la
+ * compresión por defecto, 100).
+ *
+ * Formato del estado: state[0] es la cantidad de centroides, state[1] la cantidad de valores
+ * sin comprimir, state[2] y state[3] el mínimo y el máximo; después, los centroides (media y
+ * peso, ordenados por media) y los valores sin comprimir. Sin valores, el resultado es 0.
+ */
+public class Quantile extends Measure {
+    private static final int HEADER = 4;
+    private static final int INITIAL_VALUES = 8;
+    private static final int DEFAULT_COMPRESSION = 100;
+    private static final int BUFFER_FACTOR = 4;        // Valores sin comprimir por unidad de compression
+
+    private double quantile;
+    private int compression;
+    private int buffer;         // Valores sin comprimir antes de comprimir
+
+    /**
+     * @param name     Nombre de la medida
+     * @param quantile Cuantil a calcular, entre 0 y 1 (0.5 es la mediana)
+     */
+    public Quantile(String name, double quantile) {
+        this(name, quantile, DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression Cota de centroides; con más, el resultado es más preciso y cada
+     *                    celda ocupa más memoria
+     */
+    public Quantile(String name, double quantile, int compression) {
+        super(name);
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10");
+        }
+        this.quantile = quantile;
+        this.compression = compression;
+        this.buffer = compression * BUFFER_FACTOR;
+    }
+
+    public double getQuantile() {
+        return this.quantile;
+    }
+
+    public int getCompression() {
+        return this.compression;
+    }
+
+    @Override
+    public double[] init() {
+        double[] state = new double[HEADER + INITIAL_VALUES];
+        state[2] = Double.POSITIVE_INFINITY;
+        state[3] = Double.NEGATIVE_INFINITY;
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        int used = HEADER + 2 * (int) state[0] + (int) state[1];
+        if (used == state.length && state[1] >= buffer) {
+            state = compress(state, null);
+            used = HEADER + 2 * (int) state[0];
+        }
+        if (used == state.length) {
+            state = Arrays.copyOf(state, Math.min(state.length * 2, used - (int) state[1] + buffer));
+        }
+        state[used] = value;
+        state[1]++;
+        state[2] = value < state[2] ? value : state[2];
+        state[3] = value > state[3] ? value : state[3];
+        return state;
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        if (other[0] == 0 && other[1] == 0) {
+            return state;
+        }
+        if (state[0] == 0 && other[0] == 0 && state[1] + other[1] <= buffer) {
+            // Sólo valores sin comprimir: se copian para que el resultado siga siendo exacto
+            int values = (int) other[1];
+            for (int i = 0; i < values; i++) {
+                state = accumulate(state, other[HEADER + i]);
+            }
+            return state;
+        }
+        return compress(state, other);
+    }
+
+    @Override
+    public double result(double[] state) {
+        double[][] items = sortedItems(state);
+        double[] means = items[0];
+        double[] weights = items[1];
+        int n = means.length;
+        if (n == 0) {
+            return 0;
+        }
+        if (n == 1) {
+            return means[0];
+        }
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        // Posición buscada, contando cada valor en el centro de su peso: con centroides de peso 1
+        // coincide con la interpolación lineal entre los valores ordenados
+        double target = quantile * (total - 1) + 0.5;
+        double min = state[2];
+        double max = state[3];
+        double center = weights[0] / 2;
+        if (target < center) {
+            return min + (means[0] - min) * (target - 0.5) / (center - 0.5);
+        }
+        for (int i = 0; i + 1 < n; i++) {
+            double next = center + (weights[i] + weights[i + 1]) / 2;
+            if (target <= next) {
+                return means[i] + (means[i + 1] - means[i]) * (target - center) / (next - center);
+            }
+            center = next;
+        }
+        return means[n - 1] + (max - means[n - 1]) * (target - center) / (total - 0.5 - center);
+    }
+
+    /**
+     * Combina los centroides y valores del estado (y de other, si no es null) en un estado nuevo
+     * de centroides. Un centroide absorbe al siguiente mientras abarque a lo sumo una unidad de la
+     * escala k (ver limit()), que es más fina en los extremos.
+     */
+    private double[] compress(double[] state, double[] other) {
+        double[][] items = sortedItems(state);
+        double min = state[2];
+        double max = state[3];
+        if (other != null) {
+            items = mergeSorted(items, sortedItems(other));
+            min = Math.min(min, other[2]);
+            max = Math.max(max, other[3]);
+        }
+        double[] means = items[0];
+        double[] weights = items[1];
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        int centroids = 0;
+        double weightSoFar = 0;
+        double limit = total * limit(0);
+        double mean = means[0];
+        double weight = weights[0];
+        for (int i = 1; i < means.length; i++) {
+            double proposed = weight + weights[i];
+            if (weightSoFar + proposed <= limit) {
+                mean += (means[i] - mean) * weights[i] / proposed;
+                weight = proposed;
+            } else {
+                means[centroids] = mean;
+                weights[centroids] = weight;
+                centroids++;
+                weightSoFar += weight;
+                limit = total * limit(weightSoFar / total);
+                mean = means[i];
+                weight = weights[i];
+            }
+        }
+        means[centroids] = mean;
+        weights[centroids] = weight;
+        centroids++;
+
+        double[] compressed = new double[HEADER + 2 * centroids];
+        compressed[0] = centroids;
+        compressed[1] = 0;
+        compressed[2] = min;
+        compressed[3] = max;
+        for (int i = 0; i < centroids; i++) {
+            compressed[HEADER + 2 * i] = means[i];
+            compressed[HEADER + 2 * i + 1] = weights[i];
+        }
+        return compressed;
+    }
+
+    /**
+     * Cuantil hasta el que puede llegar un centroide que empieza en q: una unidad más de la
+     * escala k(q) = compression / (2 pi) * asin(2q - 1).
+     */
+    private double limit(double q) {
+        double k = Math.asin(2 * Math.min(q, 1) - 1) + 2 * Math.PI / compression;
+        return k >= Math.PI / 2 ? 1 : (Math.sin(k) + 1) / 2;
+    }
+
+    /**
+     * Devuelve las medias y pesos del estado ordenados por media: los centroides más los valores
+     * sin comprimir con peso 1. No modifica el estado.
+     */
+    private static double[][] sortedItems(double[] state) {
+        int centroids = (int) state[0];
+        int values = (int) state[1];
+        int offset = HEADER + 2 * centroids;
+        double[] sorted = Arrays.copyOfRange(state, offset, offset + values);
+        Arrays.sort(sorted);
+        double[][] items = new double[][] { new double[centroids], new double[centroids] };
+        for (int i = 0; i < centroids; i++) {
+            items[0][i] = state[HEADER + 2 * i];
+            items[1][i] = state[HEADER + 2 * i + 1];
+        }
+        double[] ones = new double[values];
+        Arrays.fill(ones, 1);
+        return mergeSorted(items, new double[][] { sorted, ones });
+    }
+
+    private static double[][] mergeSorted(double[][] a, double[][] b) {
+        int n = a[0].length + b[0].length;
+        double[][] merged = new double[][] { new double[n], new double[n] };
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < n; k++) {
+            boolean fromA = j == b[0].length || (i < a[0].length && a[0][i] <= b[0][j]);
+            double[][] source = fromA ? a : b;
+            int index = fromA ? i++ : j++;
+            merged[0][k] = source[0][index];
+            merged[1][k] = source[1][index];
+        }
+        return merged;
+    }
+}
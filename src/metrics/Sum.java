@@ -1,7 +1,5 @@
 package metrics;
 
-import java.util.List;
-
 /**
  * La clase Sum representa una medida de suma
  */
@@ -12,14 +10,61 @@ public class Sum extends Measure{
     }
 
     @Override
-    public double calc(List<Double> values) {
-        double sum = 0;
-        if (values == null) {
-            return sum;
-        }
-        for (double value : values) {
-            sum += value;
-        }
-        return sum;
+    public double[] init() {
+        return new double[] { 0 };
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double value) {
+        state[0] += value;
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int from, int to) {
+        state[0] += Kernels.sum(column, from, to);
+        return state;
+    }
+
+    @Override
+    public double[] accumulate(double[] state, double[] column, int[] rows, int from, int to) {
+        state[0] += Kernels.sum(column, rows, from, to);
+        return state;
+    }
+
+    @Override
+    public double[] fromSummary(double[] summary) {
+        return new double[] { summary[Kernels.SUM] };
+    }
+
+    @Override
+    public double[] merge(double[] state, double[] other) {
+        state[0] += other[0];
+        return state;
+    }
+
+    @Override
+    public double result(double[] state) {
+        return state[0];
+    }
+
+    @Override
+    public int getStateSize() {
+        return 1;
+    }
+
+    @Override
+    public void accumulate(double[] states, int offset, double value) {
+        states[offset] += value;
+    }
+
+    @Override
+    public void merge(double[] states, int offset, double[] other, int otherOffset) {
+        states[offset] += other[otherOffset];
+    }
+
+    @Override
+    public double result(double[] states, int offset) {
+        return states[offset];
     }
 }